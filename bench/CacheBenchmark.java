@@ -0,0 +1,257 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Lookup latency and hit rate of CachedProductStore over a simulated slow backing
+ * store. The backing store is a MapProductStore that parks for a fixed latency on
+ * every point read, standing in for a disk or network round trip. Reader threads
+ * look barcodes up through InventoryManager with Zipf-skewed popularity, like
+ * scanner traffic. Some of the barcodes are unknown, and a few operations are
+ * stock writes. Each cache size is measured on a fresh catalog. Size 0 means no
+ * cache.
+ *
+ * Before measuring, a small cache is checked for the behaviour the numbers depend
+ * on: repeat lookups and unknown barcodes are hits that skip the backing store,
+ * writes replace cached entries, the cache stays within capacity, and a scan of
+ * one-off barcodes does not evict a hot set. After each run every cached product
+ * is compared with the backing store, so a write the cache missed shows up as a
+ * stale entry. Any violation, or a reader thread failing, is printed and the run
+ * exits with status 1.
+ *
+ * Arguments (all optional, key=value):
+ *   size=100000               products in the catalog
+ *   caches=0,1000,10000       cache capacities to compare
+ *   latency=100               microseconds per backing store point read
+ *   threads=8                 concurrent reader threads
+ *   skew=0.99                 Zipf exponent of barcode popularity
+ *   unknown=5 writes=1        percent of operations that look up unknown barcodes / receive stock
+ *   warmup=2000 time=5000     milliseconds of unrecorded warmup, then of measurement
+ */
+public class CacheBenchmark {
+
+    private static volatile boolean recording;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int size = Integer.parseInt(opt.getOrDefault("size", "100000"));
+        long latency = Long.parseLong(opt.getOrDefault("latency", "100")) * 1000;
+        int threads = Integer.parseInt(opt.getOrDefault("threads", "8"));
+        double skew = Double.parseDouble(opt.getOrDefault("skew", "0.99"));
+        int unknown = Integer.parseInt(opt.getOrDefault("unknown", "5"));
+        int writes = Integer.parseInt(opt.getOrDefault("writes", "1"));
+        long warmup = Long.parseLong(opt.getOrDefault("warmup", "2000"));
+        long time = Long.parseLong(opt.getOrDefault("time", "5000"));
+
+        List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        checkCache(violations);
+
+        Zipf zipf = new Zipf(size, skew);
+        System.out.printf("size=%d latency=%dus threads=%d skew=%.2f unknown=%d%% writes=%d%%%n",
+                size, latency / 1000, threads, skew, unknown, writes);
+        System.out.printf("%-8s %12s %9s %10s %10s %10s %14s%n", "cache", "ops/s", "hit rate", "mean us", "p50 us", "p99 us", "backing/s");
+        for (String c : opt.getOrDefault("caches", "0,1000,10000").split(",")) {
+            int capacity = Integer.parseInt(c.trim());
+            SlowProductStore slow = new SlowProductStore();
+            CachedProductStore cache = capacity > 0 ? new CachedProductStore(slow, capacity) : null;
+            InventoryManager manager = new InventoryManager(cache != null ? cache : slow);
+            List<Product> batch = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                batch.add(new Product("B" + i, "Item " + i, 1_000_000, "pcs", BigDecimal.valueOf(i % 10_000, 2)));
+                if (batch.size() == 10_000 || i == size - 1) {
+                    manager.addAll(batch);
+                    batch.clear();
+                }
+            }
+            slow.latencyNanos = latency;
+
+            LatencyHistogram histogram = new LatencyHistogram();
+            AtomicLong completed = new AtomicLong();
+            long[] before = new long[3];
+            long[] after = new long[3];
+            long end = System.nanoTime() + (warmup + time) * 1_000_000;
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread w = new Thread(() -> {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        int roll = rnd.nextInt(100);
+                        long t0 = System.nanoTime();
+                        if (roll < writes) {
+                            manager.applyTransaction(new StockTransaction().receive("B" + zipf.next(rnd), 1));
+                        } else if (roll < writes + unknown) {
+                            manager.getProductByBarcode("U" + zipf.next(rnd));
+                        } else {
+                            manager.getProductByBarcode("B" + zipf.next(rnd));
+                        }
+                        if (recording) {
+                            histogram.record(System.nanoTime() - t0);
+                            completed.incrementAndGet();
+                        }
+                    }
+                }, "cache-reader-" + t);
+                w.setDaemon(true);
+                w.setUncaughtExceptionHandler((thread, e) -> violations.add(thread.getName() + " failed: " + e));
+                workers.add(w);
+                w.start();
+            }
+            Thread.sleep(warmup);
+            sample(cache, slow, before);
+            recording = true;
+            long t0 = System.nanoTime();
+            Thread.sleep(time);
+            recording = false;
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            sample(cache, slow, after);
+            for (Thread w : workers) w.join();
+            if (cache != null) checkNotStale(cache, slow, size, violations);
+
+            long hits = after[0] - before[0];
+            long misses = after[1] - before[1];
+            String rate = cache == null ? "-" : String.format("%.1f%%", 100.0 * hits / Math.max(1, hits + misses));
+            System.out.printf("%-8d %12.0f %9s %10.1f %10.1f %10.1f %14.0f%n", capacity, completed.get() / seconds, rate,
+                    histogram.getMean() / 1000, histogram.percentile(0.50) / 1000.0, histogram.percentile(0.99) / 1000.0,
+                    (after[2] - before[2]) / seconds);
+        }
+        if (!violations.isEmpty()) {
+            for (String v : violations) System.err.println("violated: " + v);
+            System.exit(1);
+        }
+    }
+
+    private static void checkCache(List<String> violations) {
+        int capacity = 1000;
+        SlowProductStore slow = new SlowProductStore();
+        CachedProductStore cache = new CachedProductStore(slow, capacity);
+        for (int i = 0; i < 20 * capacity; i++) cache.put(new Product("B" + i, "Item " + i, 1, "pcs", BigDecimal.ONE));
+
+        long reads = slow.reads.sum();
+        cache.get("B1");
+        Product again = cache.get("B1");
+        if (again == null || slow.reads.sum() != reads + 1 || cache.getHits() != 1) {
+            violations.add("repeat lookup was not a hit served from the cache");
+        }
+        reads = slow.reads.sum();
+        cache.get("U1");
+        if (cache.get("U1") != null || slow.reads.sum() != reads + 1 || cache.getNegativeHits() != 1) {
+            violations.add("unknown barcode was not cached as absent");
+        }
+        cache.put(new Product("B1", "Item 1", 7, "pcs", BigDecimal.ONE));
+        reads = slow.reads.sum();
+        Product written = cache.get("B1");
+        if (written == null || written.getQuantity() != 7 || slow.reads.sum() != reads) {
+            violations.add("write did not replace the cached entry");
+        }
+        cache.remove("B1");
+        if (cache.get("B1") != null) violations.add("removed product still served from the cache");
+
+        // a hot set hit repeatedly, then a scan of one-off barcodes five times the capacity
+        int hot = capacity / 10;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 2; i < 2 + hot; i++) cache.get("B" + i);
+        }
+        for (int i = 2 + hot; i < 2 + hot + 5 * capacity; i++) cache.get("B" + i);
+        if (cache.getCachedCount() > capacity) violations.add("cache holds " + cache.getCachedCount() + " entries, capacity " + capacity);
+        if (cache.getEvictions() == 0) violations.add("scan past capacity evicted nothing");
+        reads = slow.reads.sum();
+        for (int i = 2; i < 2 + hot; i++) cache.get("B" + i);
+        long reloaded = slow.reads.sum() - reads;
+        if (reloaded > 0) violations.add(reloaded + " of " + hot + " hot barcodes evicted by a scan of one-off barcodes");
+    }
+
+    // with the workers stopped, every cached product must match the backing store
+    private static void checkNotStale(CachedProductStore cache, SlowProductStore slow, int size, List<String> violations) {
+        slow.latencyNanos = 0;
+        int stale = 0;
+        for (int i = 0; i < size; i++) {
+            Product cached = cache.get("B" + i);
+            Product stored = slow.delegate.get("B" + i);
+            if (cached == null || stored == null || cached.getQuantity() != stored.getQuantity()) stale++;
+        }
+        if (stale > 0) violations.add(stale + " stale products in a cache of " + cache.getCapacity());
+    }
+
+    private static void sample(CachedProductStore cache, SlowProductStore slow, long[] out) {
+        out[0] = cache == null ? 0 : cache.getHits();
+        out[1] = cache == null ? 0 : cache.getMisses();
+        out[2] = slow.reads.sum();
+    }
+
+    /** MapProductStore that parks for latencyNanos on every point read. */
+    static final class SlowProductStore implements ProductStore {
+
+        private final MapProductStore delegate = new MapProductStore();
+        final LongAdder reads = new LongAdder();
+        volatile long latencyNanos;
+
+        private void roundTrip() {
+            reads.increment();
+            long nanos = latencyNanos;
+            if (nanos == 0) return;
+            long until = System.nanoTime() + nanos;
+            for (long left = nanos; left > 0; left = until - System.nanoTime()) LockSupport.parkNanos(left);
+        }
+
+        @Override public Product get(String barcode) { roundTrip(); return delegate.get(barcode); }
+        @Override public boolean containsKey(String barcode) { roundTrip(); return delegate.containsKey(barcode); }
+        @Override public Product get(String barcode, long epoch) { roundTrip(); return delegate.get(barcode, epoch); }
+        @Override public void put(Product product, long stamp, long horizon) { delegate.put(product, stamp, horizon); }
+        @Override public Product remove(String barcode, long stamp, long horizon) { return delegate.remove(barcode, stamp, horizon); }
+        @Override public int size() { return delegate.size(); }
+        @Override public void forEach(Consumer<Product> action) { delegate.forEach(action); }
+        @Override public List<Product> values() { return delegate.values(); }
+        @Override public void forEach(long epoch, Consumer<Product> action) { delegate.forEach(epoch, action); }
+        @Override public void prune(long oldest) { delegate.prune(oldest); }
+    }
+
+    /** Ranks 0..n-1 drawn with probability proportional to 1 / (rank + 1)^skew, shuffled over the catalog. */
+    static final class Zipf {
+
+        private final double[] cdf;
+        private final int[] ids;
+
+        Zipf(int n, double skew) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < n; i++) cdf[i] /= sum;
+            // fixed seed so every cache size sees the same hot set
+            ids = new int[n];
+            Random shuffle = new Random(42);
+            for (int i = 0; i < n; i++) ids[i] = i;
+            for (int i = n - 1; i > 0; i--) {
+                int j = shuffle.nextInt(i + 1);
+                int tmp = ids[i];
+                ids[i] = ids[j];
+                ids[j] = tmp;
+            }
+        }
+
+        int next(Random rnd) {
+            double u = rnd.nextDouble();
+            int lo = 0, hi = cdf.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cdf[mid] < u) lo = mid + 1;
+                else hi = mid;
+            }
+            return ids[lo];
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,233 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and allocation benchmarks for the InventoryManager and Product hot paths.
+ *
+ * JMH cannot be used here: it refuses benchmark classes in the unnamed package, and
+ * code in a named package cannot reach the application classes. This harness keeps
+ * the JMH shape instead: warmup then measured iterations of fixed wall time per
+ * (operation, catalog size, thread count), a result sink against dead-code
+ * elimination, and per-op allocation from the thread allocation counters (the
+ * equivalent of -prof gc). Each engine and size also reports the retained heap per
+ * SKU of a bare store.
+ *
+ * Arguments (all optional, key=value):
+ *   sizes=1000,10000,...      catalog sizes (default 1K..10M by decades)
+ *   threads=1,2,4,...         writer/reader thread counts (default powers of two up to cores)
+ *   ops=lookup,search,...     subset of: lookup, search, total, all, value, add
+ *   engines=map,columnar      storage engines to compare (default map)
+ *   warmup=2 iterations=5 time=1000   iteration counts and milliseconds per iteration
+ *   out=results.csv           write results as CSV
+ *   baseline=old.csv          compare against an earlier CSV and flag changes over 10%
+ */
+public class InventoryBenchmark {
+
+    private static final double REGRESSION = 0.10;
+
+    private static volatile Object sink;
+    private static final AtomicLong ADDED = new AtomicLong();
+
+    private interface Op {
+        Object run(InventoryManager m, Product[] catalog, ThreadLocalRandom r, int thread, long i);
+    }
+
+    private static final Map<String, Op> OPS = new LinkedHashMap<>();
+
+    static {
+        OPS.put("lookup", (m, c, r, t, i) -> m.getProductByBarcode(c[r.nextInt(c.length)].getBarcode()));
+        OPS.put("search", (m, c, r, t, i) -> m.search(c[r.nextInt(c.length)].getName(), 20));
+        OPS.put("total", (m, c, r, t, i) -> m.getTotalInventoryValue());
+        OPS.put("all", (m, c, r, t, i) -> m.getAllProducts());
+        OPS.put("value", (m, c, r, t, i) -> c[r.nextInt(c.length)].getTotalValue());
+        // runs last per size since it grows the catalog
+        OPS.put("add", (m, c, r, t, i) -> {
+            m.addProduct(product("N" + ADDED.incrementAndGet()));
+            return null;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> sizes = ints(opt.get("sizes"), Arrays.asList(1_000, 10_000, 100_000, 1_000_000, 10_000_000));
+        List<Integer> defaultThreads = new ArrayList<>();
+        for (int t = 1; t < cores; t <<= 1) defaultThreads.add(t);
+        defaultThreads.add(cores);
+        List<Integer> threads = ints(opt.get("threads"), defaultThreads);
+        List<String> ops = opt.containsKey("ops") ? Arrays.asList(opt.get("ops").split(",")) : new ArrayList<>(OPS.keySet());
+        int warmup = Integer.parseInt(opt.getOrDefault("warmup", "2"));
+        int iterations = Integer.parseInt(opt.getOrDefault("iterations", "5"));
+        long time = Long.parseLong(opt.getOrDefault("time", "1000"));
+        List<String> engines = Arrays.asList(opt.getOrDefault("engines", "map").split(","));
+        Map<String, Double> baseline = opt.containsKey("baseline") ? readBaseline(opt.get("baseline")) : new HashMap<>();
+
+        List<String> rows = new ArrayList<>();
+        for (String engine : engines) {
+            for (int size : sizes) {
+                System.out.printf("%-8s %10d  heap %.1f B/SKU%n", engine, size, heapPerSku(engine, size));
+            }
+        }
+        System.out.printf("%-8s %-8s %10s %7s %16s %10s %12s%n", "engine", "op", "size", "threads", "ops/s", "+-%", "B/op");
+        for (String engine : engines) {
+            for (int size : sizes) {
+                InventoryManager manager = new InventoryManager(store(engine));
+                Product[] catalog = new Product[size];
+                for (int i = 0; i < size; i++) catalog[i] = product("B" + i);
+                for (int from = 0; from < size; from += 100_000) {
+                    manager.addAll(Arrays.asList(catalog).subList(from, Math.min(size, from + 100_000)));
+                }
+                for (String name : ops) {
+                    Op op = OPS.get(name);
+                    if (op == null) throw new IllegalArgumentException("Unknown op: " + name + ", expected one of " + OPS.keySet());
+                    for (int t : threads) {
+                        for (int w = 0; w < warmup; w++) measure(op, manager, catalog, t, time);
+                        double[] rates = new double[iterations];
+                        double bytes = 0;
+                        for (int it = 0; it < iterations; it++) {
+                            double[] r = measure(op, manager, catalog, t, time);
+                            rates[it] = r[0];
+                            bytes += r[1];
+                        }
+                        double mean = Arrays.stream(rates).average().orElse(0);
+                        double sd = Math.sqrt(Arrays.stream(rates).map(x -> (x - mean) * (x - mean)).sum() / Math.max(1, iterations - 1));
+                        double perOp = bytes / iterations;
+                        String key = engine + "," + name + "," + size + "," + t;
+                        System.out.printf("%-8s %-8s %10d %7d %16.1f %9.1f%% %12.1f%s%n", engine, name, size, t, mean,
+                                mean == 0 ? 0 : 100 * sd / mean, perOp, compare(baseline.get(key), mean));
+                        rows.add(key + "," + mean + "," + sd + "," + perOp);
+                    }
+                }
+            }
+        }
+        if (opt.containsKey("out")) {
+            try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(Paths.get(opt.get("out"))))) {
+                w.println("engine,op,size,threads,ops_per_sec,stddev,bytes_per_op");
+                for (String row : rows) w.println(row);
+            }
+        }
+    }
+
+    private static ProductStore store(String engine) {
+        switch (engine) {
+            case "map": return new MapProductStore();
+            case "columnar": return new ColumnarProductStore();
+            default: throw new IllegalArgumentException("Unknown engine: " + engine + ", expected map or columnar");
+        }
+    }
+
+    // Products are generated on the fly and not kept, so only what the store retains counts.
+    private static double heapPerSku(String engine, int size) throws InterruptedException {
+        long before = usedHeap();
+        ProductStore store = store(engine);
+        for (int i = 0; i < size; i++) store.put(product("B" + i));
+        long after = usedHeap();
+        sink = store;
+        return (double) (after - before) / size;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /** Runs {@code op} on {@code threads} threads for {@code millis}; returns {ops/s, bytes/op}. */
+    private static double[] measure(Op op, InventoryManager m, Product[] catalog, int threads, long millis) throws Exception {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        long[] counts = new long[threads];
+        long[] allocated = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                long tid = Thread.currentThread().getId();
+                Object local = null;
+                long n = 0;
+                try {
+                    start.await();
+                } catch (Exception e) {
+                    return;
+                }
+                long before = mx.getThreadAllocatedBytes(tid);
+                while (running.get()) {
+                    local = op.run(m, catalog, r, id, n);
+                    n++;
+                }
+                allocated[id] = mx.getThreadAllocatedBytes(tid) - before;
+                counts[id] = n;
+                sink = local;
+            }, "bench-" + t);
+            workers[t].start();
+        }
+        start.await();
+        long t0 = System.nanoTime();
+        Thread.sleep(millis);
+        running.set(false);
+        for (Thread w : workers) w.join();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        long ops = Arrays.stream(counts).sum();
+        long bytes = Arrays.stream(allocated).sum();
+        return new double[]{ops / seconds, ops == 0 ? 0 : (double) bytes / ops};
+    }
+
+    private static Product product(String barcode) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        return new Product(barcode, "Item " + barcode.substring(1) + " " + WORDS[r.nextInt(WORDS.length)], r.nextInt(100),
+                UNITS[r.nextInt(UNITS.length)], BigDecimal.valueOf(r.nextInt(100_000), 2));
+    }
+
+    private static final String[] WORDS = {"apple", "bolt", "cable", "drill", "eraser", "filter", "gasket", "hinge"};
+    private static final String[] UNITS = {"pcs", "kg", "g", "liter", "ml"};
+
+    private static String compare(Double before, double now) {
+        if (before == null || before == 0) return "";
+        double change = (now - before) / before;
+        String flag = change < -REGRESSION ? "  REGRESSION" : change > REGRESSION ? "  improved" : "";
+        return String.format("  (%+.1f%%)%s", 100 * change, flag);
+    }
+
+    private static Map<String, Double> readBaseline(String file) throws IOException {
+        Map<String, Double> out = new HashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(file))) {
+            String line = in.readLine(); // header
+            while ((line = in.readLine()) != null) {
+                String[] f = line.split(",");
+                out.put(f[0] + "," + f[1] + "," + f[2] + "," + f[3], Double.parseDouble(f[4]));
+            }
+        }
+        return out;
+    }
+
+    private static List<Integer> ints(String csv, List<Integer> fallback) {
+        if (csv == null || csv.isEmpty()) return fallback;
+        List<Integer> out = new ArrayList<>();
+        for (String s : csv.split(",")) out.add(Integer.parseInt(s.trim().replace("_", "")));
+        return out;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test for InventoryServer: each simulated client keeps one
+ * request in flight and sends the next as soon as the previous one answers, over
+ * its own keep-alive connection. Reports throughput and the latency distribution
+ * from a LatencyHistogram. Being closed-loop, it understates tail latency once the
+ * server saturates.
+ *
+ * Arguments (all optional, key=value):
+ *   url=http://host:8080      target server; default starts one in-process on a free port
+ *   size=100000               catalog size seeded into the in-process server
+ *   serverThreads=256         in-process server pool size
+ *   clients=1000              concurrent clients
+ *   warmup=3000 time=10000    milliseconds of unrecorded warmup, then of measurement
+ *   mix=lookup:80,search:10,stock:10   request mix by weight; also batch (20 lookups per request)
+ */
+public class InventoryLoadTest {
+
+    private static final List<String> OPS = List.of("lookup", "search", "stock", "batch");
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    private final HttpClient client;
+    private final String base;
+    private final int size;
+    private final String[] mix;
+
+    private InventoryLoadTest(HttpClient client, String base, int size, String[] mix) {
+        this.client = client;
+        this.base = base;
+        this.size = size;
+        this.mix = mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int size = Integer.parseInt(opt.getOrDefault("size", "100000"));
+        int clients = Integer.parseInt(opt.getOrDefault("clients", "1000"));
+        long warmup = Long.parseLong(opt.getOrDefault("warmup", "3000"));
+        long time = Long.parseLong(opt.getOrDefault("time", "10000"));
+        String[] mix = weights(opt.getOrDefault("mix", "lookup:80,search:10,stock:10"));
+
+        InventoryServer embedded = null;
+        String base = opt.get("url");
+        if (base == null) {
+            InventoryManager manager = new InventoryManager();
+            List<Product> batch = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                batch.add(new Product("B" + i, "Item " + i, 1_000_000, "pcs", BigDecimal.valueOf(i % 10_000, 2)));
+                if (batch.size() == 100_000 || i == size - 1) {
+                    manager.addAll(batch);
+                    batch.clear();
+                }
+            }
+            int threads = Integer.parseInt(opt.getOrDefault("serverThreads", "256"));
+            embedded = new InventoryServer(manager, new InetSocketAddress("127.0.0.1", 0), threads);
+            embedded.start();
+            base = "http://127.0.0.1:" + embedded.getPort();
+        }
+
+        ExecutorService callbacks = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30)).executor(callbacks).build();
+        InventoryLoadTest test = new InventoryLoadTest(client, base, size, mix);
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) test.next(done);
+
+        Thread.sleep(warmup);
+        test.recording = true;
+        long t0 = System.nanoTime();
+        Thread.sleep(time);
+        test.recording = false;
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        test.running = false;
+        done.await();
+
+        long n = test.completed.get();
+        System.out.printf("%s  clients=%d  mix=%s%n", base, clients, opt.getOrDefault("mix", "lookup:80,search:10,stock:10"));
+        System.out.printf("requests=%d  errors=%d  throughput=%.1f req/s%n", n, test.errors.get(), n / seconds);
+        System.out.printf("latency ms  p50=%.3f  p90=%.3f  p99=%.3f  p99.9=%.3f  max=%.3f%n",
+                test.percentile(0.50), test.percentile(0.90), test.percentile(0.99), test.percentile(0.999), test.histogram.getMax() / 1e6);
+
+        callbacks.shutdown();
+        if (embedded != null) embedded.stop(0);
+    }
+
+    // Sends one request and chains the next from its completion until the run ends
+    private void next(CountDownLatch done) {
+        if (!running) {
+            done.countDown();
+            return;
+        }
+        HttpRequest req = request(mix[ThreadLocalRandom.current().nextInt(mix.length)]);
+        long start = System.nanoTime();
+        client.sendAsync(req, HttpResponse.BodyHandlers.discarding()).whenComplete((resp, err) -> {
+            long nanos = System.nanoTime() - start;
+            if (recording) {
+                histogram.record(nanos);
+                completed.incrementAndGet();
+                if (err != null || resp.statusCode() >= 400) errors.incrementAndGet();
+            }
+            next(done);
+        });
+    }
+
+    private HttpRequest request(String op) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        switch (op) {
+            case "lookup":
+                return HttpRequest.newBuilder(URI.create(base + "/products/B" + r.nextInt(size))).build();
+            case "search":
+                return HttpRequest.newBuilder(URI.create(base + "/products?q=Item%20" + r.nextInt(size) + "&limit=20")).build();
+            case "stock": {
+                String b = "B" + r.nextInt(size);
+                String body = "{\"lines\":[{\"kind\":\"pick\",\"barcode\":\"" + b + "\",\"quantity\":1},"
+                        + "{\"kind\":\"receive\",\"barcode\":\"" + b + "\",\"quantity\":1}]}";
+                return HttpRequest.newBuilder(URI.create(base + "/stock")).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+            }
+            case "batch": {
+                StringBuilder body = new StringBuilder();
+                for (int i = 0; i < 20; i++) body.append("{\"op\":\"get\",\"barcode\":\"B").append(r.nextInt(size)).append("\"}\n");
+                return HttpRequest.newBuilder(URI.create(base + "/batch")).POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+            }
+            default:
+                throw new IllegalArgumentException("Unknown op: " + op);
+        }
+    }
+
+    private double percentile(double p) {
+        return histogram.percentile(p) / 1e6;
+    }
+
+    // Expands "lookup:80,search:20" into a 100-slot table to draw from
+    private static String[] weights(String spec) {
+        List<String> slots = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            if (!OPS.contains(kv[0].trim())) throw new IllegalArgumentException("Unknown op: " + kv[0] + ", expected one of " + OPS);
+            int w = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+            for (int i = 0; i < w; i++) slots.add(kv[0].trim());
+        }
+        if (slots.isEmpty()) throw new IllegalArgumentException("Empty request mix");
+        return slots.toArray(new String[0]);
+    }
+}
\ No newline at end of file
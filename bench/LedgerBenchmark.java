@@ -0,0 +1,110 @@
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Ingest rate, size and query latency of MovementLedger. A single writer records
+ * synthetic movements spread evenly over a number of days: each one moves a random
+ * SKU's stock up or down by a few units, and one in fifty also changes its price.
+ * After a flush it reports bytes per movement in the sealed segments, then the
+ * latency of history over one day, stateAt, summarize over a month and daily
+ * closes over a month, each for random SKUs and dates.
+ *
+ * Arguments (all optional, key=value):
+ *   movements=20000000        movements to record
+ *   skus=100000 days=365      distinct barcodes, and days the movements span
+ *   queries=2000              queries of each kind to time
+ *   dir=path                  persist and memory-map segments there instead of keeping them on the heap
+ */
+public class LedgerBenchmark {
+
+    private static final long DAY = 86_400_000L;
+    private static final ZoneId ZONE = ZoneId.of("UTC");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        long movements = Long.parseLong(opt.getOrDefault("movements", "20000000"));
+        int skus = Integer.parseInt(opt.getOrDefault("skus", "100000"));
+        int days = Integer.parseInt(opt.getOrDefault("days", "365"));
+        int queries = Integer.parseInt(opt.getOrDefault("queries", "2000"));
+
+        MovementLedger ledger = new MovementLedger();
+        if (opt.containsKey("dir")) ledger.open(Paths.get(opt.get("dir")));
+        String[] barcodes = new String[skus];
+        long[] stock = new long[skus];
+        long[] cents = new long[skus];
+        Random rnd = new Random(42);
+        for (int i = 0; i < skus; i++) {
+            barcodes[i] = "SKU" + i;
+            stock[i] = 100 + rnd.nextInt(1000);
+            cents[i] = 100 + rnd.nextInt(100_000);
+        }
+        long start = LocalDate.of(2024, 1, 1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+        double step = (double) days * DAY / movements;
+
+        System.out.printf("movements=%d skus=%d days=%d%s%n", movements, skus, days, opt.containsKey("dir") ? " dir=" + opt.get("dir") : "");
+        long t0 = System.nanoTime();
+        for (long i = 0; i < movements; i++) {
+            int s = rnd.nextInt(skus);
+            stock[s] = Math.max(0, stock[s] + rnd.nextInt(21) - 10);
+            if (rnd.nextInt(50) == 0) cents[s] = Math.max(1, cents[s] + rnd.nextInt(201) - 100);
+            ledger.record(barcodes[s], start + (long) (i * step), stock[s], BigDecimal.valueOf(cents[s], 2));
+        }
+        ledger.flush();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("ingest %.0f movements/s, %.2f bytes/movement (%d MB sealed)%n",
+                movements / seconds, (double) ledger.getSealedBytes() / movements, ledger.getSealedBytes() >> 20);
+
+        long end = start + (long) days * DAY;
+        LocalDate first = Instant.ofEpochMilli(start).atZone(ZONE).toLocalDate();
+        System.out.printf("%-14s %10s %10s %10s %12s%n", "query", "mean us", "p50 us", "p99 us", "rows/query");
+        // one untimed pass per kind warms the JIT
+        for (int pass = 0; pass < 2; pass++) {
+            boolean print = pass == 1;
+            time("history 1d", queries, print, rnd, q -> {
+                long from = start + (long) (rnd.nextDouble() * (end - start - DAY));
+                return ledger.history(barcodes[rnd.nextInt(skus)], from, from + DAY).size();
+            });
+            time("stateAt", queries, print, rnd, q -> {
+                long at = start + (long) (rnd.nextDouble() * (end - start));
+                return ledger.stateAt(barcodes[rnd.nextInt(skus)], at) == null ? 0 : 1;
+            });
+            time("summarize 30d", queries, print, rnd, q -> {
+                long from = start + (long) (rnd.nextDouble() * (end - start - 30 * DAY));
+                return ledger.summarize(barcodes[rnd.nextInt(skus)], from, from + 30 * DAY).getMovements();
+            });
+            time("closes 30d", queries, print, rnd, q -> {
+                LocalDate d = first.plusDays(rnd.nextInt(Math.max(1, days - 30)));
+                return ledger.dailyCloses(barcodes[rnd.nextInt(skus)], d, d.plusDays(29), ZONE).size();
+            });
+        }
+        ledger.close();
+    }
+
+    private interface Query {
+        long run(int i);
+    }
+
+    private static void time(String name, int queries, boolean print, Random rnd, Query query) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long rows = 0;
+        for (int i = 0; i < queries; i++) {
+            long t0 = System.nanoTime();
+            rows += query.run(i);
+            histogram.record(System.nanoTime() - t0);
+        }
+        if (print) {
+            System.out.printf("%-14s %10.1f %10.1f %10.1f %12.1f%n", name, histogram.getMean() / 1000,
+                    histogram.percentile(0.50) / 1000.0, histogram.percentile(0.99) / 1000.0, (double) rows / queries);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency invariants of InventoryManager under renames. A fixed set of SKUs is
+ * renamed back and forth between two barcodes each ("K7" and "R7"), while the same
+ * threads run stock transactions across SKUs, add and delete scratch products, and
+ * look products up. Operations the manager rejects (a rename onto a barcode in use,
+ * a pick below zero) are counted, not failures. Afterwards it checks that every SKU
+ * exists under exactly one of its barcodes, that getStats() matches a recount of the
+ * store, and that the search index matches the store. Every violation is printed
+ * and the run exits with status 1, as it does if a worker fails unexpectedly, so the
+ * test can gate a build.
+ *
+ * Arguments (all optional, key=value):
+ *   keys=200                  SKUs being renamed
+ *   threads=8 ops=50000       worker threads, and operations per thread
+ *   engine=map                storage engine, map or columnar
+ */
+public class RenameStressTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("1.10");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int keys = Integer.parseInt(opt.getOrDefault("keys", "200"));
+        int threads = Integer.parseInt(opt.getOrDefault("threads", "8"));
+        int ops = Integer.parseInt(opt.getOrDefault("ops", "50000"));
+        String engine = opt.getOrDefault("engine", "map");
+
+        InventoryManager m = new InventoryManager("columnar".equals(engine) ? new ColumnarProductStore() : new MapProductStore());
+        for (int k = 0; k < keys; k++) m.addProduct(new Product("K" + k, "item " + k, 100, "pcs", PRICE));
+
+        AtomicLong done = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        long t0 = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(pool.submit(() -> {
+                Random rnd = new Random(worker);
+                for (int i = 0; i < ops; i++) {
+                    int k = rnd.nextInt(keys);
+                    String from = (rnd.nextBoolean() ? "K" : "R") + k;
+                    String to = (rnd.nextBoolean() ? "K" : "R") + k;
+                    try {
+                        switch (rnd.nextInt(4)) {
+                            case 0:
+                                m.updateProduct(from, new Product(to, "item " + k, rnd.nextInt(50), "pcs", PRICE));
+                                break;
+                            case 1:
+                                m.applyTransaction(new StockTransaction().pick(from, 1).receive("K" + rnd.nextInt(keys), 1));
+                                break;
+                            case 2:
+                                m.getProductByBarcode(from);
+                                m.search("item " + k, 3);
+                                break;
+                            default:
+                                String scratch = "T" + worker + "-" + i;
+                                m.addProduct(new Product(scratch, "scratch", 1, "kg", BigDecimal.ONE));
+                                m.deleteProduct(scratch);
+                                break;
+                        }
+                        done.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> f : workers) f.get();
+        } catch (ExecutionException e) {
+            System.err.print("worker failed: ");
+            e.getCause().printStackTrace();
+            System.exit(1);
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("engine=%s keys=%d threads=%d: %d ops applied, %d rejected, %.0f ops/s%n",
+                engine, keys, threads, done.get(), rejected.get(), (done.get() + rejected.get()) / seconds);
+
+        List<String> violations = new ArrayList<>();
+
+        // every SKU under exactly one of its two barcodes, and nothing else left behind
+        List<Product> all = m.getAllProducts();
+        boolean[] seen = new boolean[keys];
+        BigDecimal value = BigDecimal.ZERO;
+        for (Product p : all) {
+            String code = p.getBarcode();
+            if (!code.startsWith("K") && !code.startsWith("R")) {
+                violations.add("Left behind: " + code);
+                continue;
+            }
+            int k = Integer.parseInt(code.substring(1));
+            if (seen[k]) violations.add("SKU " + k + " present under both barcodes");
+            seen[k] = true;
+            value = value.add(p.getTotalValue());
+        }
+        if (all.size() != keys) violations.add("Expected " + keys + " SKUs, found " + all.size());
+
+        InventoryAggregates.Snapshot stats = m.getStats();
+        if (stats.getSkuCount() != keys) violations.add("Stats count " + stats.getSkuCount() + ", recount " + keys);
+        if (stats.getTotalValue().compareTo(value) != 0) {
+            violations.add("Stats value " + stats.getTotalValue() + ", recount " + value);
+        }
+
+        List<Product> indexed = m.search("item");
+        if (indexed.size() != keys) violations.add("Index holds " + indexed.size() + " SKUs, store " + keys);
+        for (Product p : indexed) {
+            if (!p.equals(m.getProductByBarcode(p.getBarcode()))) violations.add("Index out of date for " + p.getBarcode());
+        }
+        for (Product p : all) {
+            if (m.search(p.getBarcode()).stream().noneMatch(q -> q.getBarcode().equals(p.getBarcode()))) {
+                violations.add("Index misses barcode " + p.getBarcode());
+            }
+        }
+        if (!violations.isEmpty()) {
+            for (String v : violations) System.err.println("violated: " + v);
+            System.exit(1);
+        }
+        System.out.println("invariants hold: no duplicate SKUs, stats match a recount, index matches the store");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scaling of InventoryReports with core count. Fills one store and wraps it in an
+ * InventoryManager, then times each report on fork-join pools of increasing
+ * parallelism, each run reading a fresh snapshot of the manager, and prints the
+ * mean time per report and the speedup over the smallest pool. The store is filled
+ * directly rather than through addAll, since the search index of a 10M-SKU catalog
+ * would not fit the benchmark heap and reports never read it. A "serial" row times the same
+ * value-by-unit report done the old way, one thread summing BigDecimal values.
+ * Speedup stops at the number of cores the JVM is given.
+ *
+ * Arguments (all optional, key=value):
+ *   size=10000000             products in the catalog
+ *   engine=columnar           storage engine, map or columnar
+ *   threads=1,2,4,...         pool sizes (default powers of two up to cores)
+ *   reports=unit,top,quantity,price   which reports to time
+ *   warmup=2 iterations=5     unrecorded runs, then timed runs, per report and pool size
+ */
+public class ReportBenchmark {
+
+    private static final String[] UNITS = {"pcs", "kg", "l", "box", "m", "pack"};
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int size = Integer.parseInt(opt.getOrDefault("size", "10000000"));
+        String engine = opt.getOrDefault("engine", "columnar");
+        int warmup = Integer.parseInt(opt.getOrDefault("warmup", "2"));
+        int iterations = Integer.parseInt(opt.getOrDefault("iterations", "5"));
+        List<Integer> threads = new ArrayList<>();
+        if (opt.containsKey("threads")) {
+            for (String t : opt.get("threads").split(",")) threads.add(Integer.parseInt(t.trim()));
+        } else {
+            for (int t = 1; t <= Runtime.getRuntime().availableProcessors(); t <<= 1) threads.add(t);
+        }
+        List<String> reports = Arrays.asList(opt.getOrDefault("reports", "unit,top,quantity,price").split(","));
+
+        ProductStore store = "columnar".equals(engine) ? new ColumnarProductStore() : new MapProductStore();
+        Random rnd = new Random(42);
+        for (int i = 0; i < size; i++) {
+            // one SKU in five is sold by weight or volume, with a fractional quantity
+            double quantity = i % 5 == 0 ? rnd.nextInt(1_000_000) / 1000.0 : rnd.nextInt(1000);
+            store.put(new Product("R" + i, "Item " + i, quantity, UNITS[rnd.nextInt(UNITS.length)], BigDecimal.valueOf(rnd.nextInt(100_000), 2)));
+        }
+        InventoryManager manager = new InventoryManager(store);
+
+        System.out.printf("size=%d engine=%s cores=%d%n", size, engine, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %8s %12s %9s%n", "report", "threads", "ms/report", "speedup");
+        if (reports.contains("unit")) {
+            double ms = time(warmup, iterations, () -> {
+                try (InventorySnapshot s = manager.snapshot()) {
+                    Map<String, BigDecimal> value = new TreeMap<>();
+                    s.forEachProduct(p -> value.merge(p.getUnit(), p.getTotalValue(), BigDecimal::add));
+                    sink = value;
+                }
+            });
+            System.out.printf("%-10s %8s %12.1f %9s%n", "serial", "-", ms, "-");
+        }
+        BigDecimal[] priceBounds = {new BigDecimal("1"), new BigDecimal("10"), new BigDecimal("100"), new BigDecimal("500")};
+        for (String report : reports) {
+            double base = 0;
+            for (int t : threads) {
+                ForkJoinPool pool = new ForkJoinPool(t);
+                InventoryReports engineReports = new InventoryReports(pool);
+                Runnable run;
+                switch (report.trim()) {
+                    case "unit": run = () -> { try (InventorySnapshot s = manager.snapshot()) { sink = engineReports.valueByUnit(s); } }; break;
+                    case "top": run = () -> { try (InventorySnapshot s = manager.snapshot()) { sink = engineReports.topByValue(s, 100); } }; break;
+                    case "quantity": run = () -> { try (InventorySnapshot s = manager.snapshot()) { sink = engineReports.quantityHistogram(s, 1, 10, 100, 500); } }; break;
+                    case "price": run = () -> { try (InventorySnapshot s = manager.snapshot()) { sink = engineReports.priceBands(s, priceBounds); } }; break;
+                    default: throw new IllegalArgumentException("Unknown report: " + report + ", expected unit, top, quantity or price");
+                }
+                double ms = time(warmup, iterations, run);
+                if (base == 0) base = ms;
+                System.out.printf("%-10s %8d %12.1f %8.2fx%n", report.trim(), t, ms, base / ms);
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static double time(int warmup, int iterations, Runnable run) {
+        for (int i = 0; i < warmup; i++) run.run();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) run.run();
+        return (System.nanoTime() - t0) / 1e6 / iterations;
+    }
+}
\ No newline at end of file
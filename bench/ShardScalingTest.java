@@ -0,0 +1,106 @@
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write throughput of ShardedInventory as shards are added. For each shard count it
+ * starts a LocalShardCluster, runs closed-loop writer threads that add fresh
+ * products through the client, and reports products written per second and the
+ * speedup over the first shard count. One unrecorded pass on a throwaway cluster
+ * warms the JIT first, so the first shard count is not measured cold. In-JVM shards share this machine's cores,
+ * so scaling flattens once they are used up; pass urls= to measure shards running
+ * as separate processes or on other hosts instead.
+ *
+ * Arguments (all optional, key=value):
+ *   shards=1,2,4              shard counts to compare
+ *   writers=32                concurrent writer threads
+ *   batch=1                   products per request: 1 uses addProduct, more uses addAll
+ *   serverThreads=32          request threads per in-JVM shard
+ *   warmup=10000 time=5000    milliseconds of the JIT warmup pass, then of each measurement
+ *   urls=http://h1:8080,...   use these running servers as the shards instead
+ */
+public class ShardScalingTest {
+
+    private static final long SETTLE_MS = 1000;
+    private static final AtomicLong nextBarcode = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opt.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int writers = Integer.parseInt(opt.getOrDefault("writers", "32"));
+        int batch = Integer.parseInt(opt.getOrDefault("batch", "1"));
+        int serverThreads = Integer.parseInt(opt.getOrDefault("serverThreads", "32"));
+        long warmup = Long.parseLong(opt.getOrDefault("warmup", "10000"));
+        long time = Long.parseLong(opt.getOrDefault("time", "5000"));
+
+        System.out.printf("writers=%d batch=%d%n%-8s %14s %9s%n", writers, batch, "shards", "writes/s", "speedup");
+        if (opt.containsKey("urls")) {
+            List<URI> nodes = new ArrayList<>();
+            for (String u : opt.get("urls").split(",")) nodes.add(URI.create(u.trim()));
+            ShardedInventory inventory = new ShardedInventory(nodes);
+            run(inventory, writers, batch, 0, warmup);
+            double rate = run(inventory, writers, batch, SETTLE_MS, time);
+            System.out.printf("%-8d %14.1f %9s%n", nodes.size(), rate, "-");
+            return;
+        }
+        String[] counts = opt.getOrDefault("shards", "1,2,4").split(",");
+        try (LocalShardCluster cluster = new LocalShardCluster(Integer.parseInt(counts[0].trim()), serverThreads, null)) {
+            run(cluster.client(), writers, batch, 0, warmup);
+        }
+        double base = 0;
+        for (String s : counts) {
+            int shards = Integer.parseInt(s.trim());
+            try (LocalShardCluster cluster = new LocalShardCluster(shards, serverThreads, null)) {
+                double rate = run(cluster.client(), writers, batch, SETTLE_MS, time);
+                if (base == 0) base = rate;
+                System.out.printf("%-8d %14.1f %8.2fx%n", shards, rate, rate / base);
+            }
+        }
+    }
+
+    private static double run(ShardedInventory inventory, int writers, int batch, long warmup, long time) throws InterruptedException {
+        AtomicLong written = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long[] window = new long[2];
+        List<Thread> threads = new ArrayList<>();
+        long end = System.nanoTime() + (warmup + time) * 1_000_000;
+        for (int w = 0; w < writers; w++) {
+            Thread t = new Thread(() -> {
+                List<Product> products = new ArrayList<>(batch);
+                while (System.nanoTime() < end) {
+                    products.clear();
+                    for (int i = 0; i < batch; i++) {
+                        long n = nextBarcode.incrementAndGet();
+                        products.add(new Product("S" + n, "Item " + n, 100, "pcs", BigDecimal.valueOf(n % 10_000, 2)));
+                    }
+                    try {
+                        if (batch == 1) inventory.addProduct(products.get(0));
+                        else inventory.addAll(products);
+                        written.addAndGet(batch);
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "shard-writer-" + w);
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+        Thread.sleep(warmup);
+        window[0] = written.get();
+        long t0 = System.nanoTime();
+        Thread.sleep(time);
+        window[1] = written.get();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        for (Thread t : threads) t.join();
+        if (errors.get() > 0) System.err.println(errors.get() + " failed requests");
+        return (window[1] - window[0]) / seconds;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+/** JMX view of a CachedProductStore, registered as inventory:type=Cache. */
+public interface CacheMetricsMXBean {
+    long getHits();
+    /** Hits that answered "no such barcode" without asking the backing store. */
+    long getNegativeHits();
+    long getMisses();
+    long getEvictions();
+    double getHitRate();
+    /** Entries cached now, negative ones included. */
+    long getCachedCount();
+    long getCapacity();
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache in front of a slower ProductStore, for engines whose point
+ * reads go to disk or the network. Lookups are served from a bounded W-TinyLFU
+ * cache: a new barcode enters a small LRU window, and when it leaves the window it
+ * only displaces the main cache's eviction victim if a FrequencySketch says it has
+ * been asked for more often, so a burst of one-off barcodes cannot flush the hot
+ * SKUs. The main cache is a segmented LRU whose protected part holds barcodes hit
+ * more than once. Unknown barcodes are cached as negative entries.
+ *
+ * Writes go to the backing store first and then replace any cached entry; scans,
+ * snapshot reads and size() go straight to the backing store. The cache is split
+ * into segments by barcode hash, each with its own lock and sketch.
+ */
+public class CachedProductStore implements ProductStore, CacheMetricsMXBean {
+
+    // cached answer for a barcode the backing store does not have
+    private static final Product ABSENT = new Product("", null, 0, "", BigDecimal.ZERO, true);
+    private static final int MIN_SEGMENT = 256;
+
+    private final ProductStore backing;
+    private final int capacity;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachedProductStore(ProductStore backing, int capacity) {
+        if (backing == null) throw new IllegalArgumentException("Backing store required");
+        if (capacity < 1) throw new IllegalArgumentException("Cache capacity must be positive");
+        this.backing = backing;
+        this.capacity = capacity;
+        int n = 1;
+        while (n < 64 && n < Runtime.getRuntime().availableProcessors() * 4 && capacity / (n * 2) >= MIN_SEGMENT) n <<= 1;
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) segments[i] = new Segment(capacity / n + (i < capacity % n ? 1 : 0));
+    }
+
+    public ProductStore getBacking() {
+        return backing;
+    }
+
+    private Segment segmentFor(int h) {
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    @Override
+    public Product get(String barcode) {
+        if (barcode == null) return null;
+        int h = barcode.hashCode();
+        Segment s = segmentFor(h);
+        Product cached = s.get(barcode, h);
+        if (cached != null) {
+            hits.increment();
+            if (cached != ABSENT) return cached;
+            negativeHits.increment();
+            return null;
+        }
+        misses.increment();
+        long writes = s.writes;
+        Product loaded = backing.get(barcode);
+        s.load(barcode, h, loaded == null ? ABSENT : loaded, writes);
+        return loaded;
+    }
+
+    @Override
+    public boolean containsKey(String barcode) {
+        return get(barcode) != null;
+    }
+
+    @Override
+    public void put(Product product, long stamp, long horizon) {
+        Product frozen = product.freeze();
+        backing.put(frozen, stamp, horizon);
+        String code = frozen.getBarcode();
+        segmentFor(code.hashCode()).write(code, frozen);
+    }
+
+    @Override
+    public Product remove(String barcode, long stamp, long horizon) {
+        Product removed = backing.remove(barcode, stamp, horizon);
+        if (barcode != null) segmentFor(barcode.hashCode()).write(barcode, ABSENT);
+        return removed;
+    }
+
+    @Override public int size() { return backing.size(); }
+    @Override public void forEach(Consumer<Product> action) { backing.forEach(action); }
+    @Override public List<Product> values() { return backing.values(); }
+    @Override public long getReadRetries() { return backing.getReadRetries(); }
+    @Override public Product get(String barcode, long epoch) { return backing.get(barcode, epoch); }
+    @Override public void forEach(long epoch, Consumer<Product> action) { backing.forEach(epoch, action); }
+    @Override public Spliterator<Product> spliterator(long epoch) { return backing.spliterator(epoch); }
+    @Override public void prune(long oldest) { backing.prune(oldest); }
+
+    @Override public long getHits() { return hits.sum(); }
+    @Override public long getNegativeHits() { return negativeHits.sum(); }
+    @Override public long getMisses() { return misses.sum(); }
+    @Override public long getEvictions() { return evictions.sum(); }
+    @Override public long getCapacity() { return capacity; }
+
+    @Override
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public long getCachedCount() {
+        long n = 0;
+        for (Segment s : segments) n += s.size();
+        return n;
+    }
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final class Node {
+        final String key;
+        final int hash;
+        Product value;
+        int queue;
+        Node prev;
+        Node next;
+
+        Node(String key, int hash, Product value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    private final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Node> nodes = new HashMap<>();
+        private final FrequencySketch sketch;
+        // circular lists with sentinel heads: head.next is least recently used
+        private final Node[] queues = {sentinel(), sentinel(), sentinel()};
+        private final int[] sizes = new int[3];
+        private final int windowMax;
+        private final int mainMax;
+        private final int protectedMax;
+        // bumped by every write, so a load that raced one is not cached
+        private volatile long writes;
+
+        Segment(int capacity) {
+            windowMax = Math.max(1, capacity / 100);
+            mainMax = Math.max(1, capacity - windowMax);
+            protectedMax = mainMax * 4 / 5;
+            sketch = new FrequencySketch(capacity);
+        }
+
+        Product get(String key, int h) {
+            lock.lock();
+            try {
+                sketch.increment(h);
+                Node n = nodes.get(key);
+                if (n == null) return null;
+                touch(n);
+                return n.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void load(String key, int h, Product value, long writesBefore) {
+            lock.lock();
+            try {
+                if (writes != writesBefore || nodes.containsKey(key)) return;
+                Node n = new Node(key, h, value);
+                nodes.put(key, n);
+                append(WINDOW, n);
+                evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void write(String key, Product value) {
+            lock.lock();
+            try {
+                writes++;
+                Node n = nodes.get(key);
+                if (n != null) n.value = value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return nodes.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void touch(Node n) {
+            if (n.queue == PROBATION) {
+                unlink(n);
+                append(PROTECTED, n);
+                if (sizes[PROTECTED] > protectedMax) {
+                    Node demoted = queues[PROTECTED].next;
+                    unlink(demoted);
+                    append(PROBATION, demoted);
+                }
+            } else {
+                unlink(n);
+                append(n.queue, n);
+            }
+        }
+
+        // The window's LRU moves to probation; if the main cache is then over
+        // capacity, the less frequent of it and the main cache's victim is dropped.
+        private void evict() {
+            while (sizes[WINDOW] > windowMax) {
+                Node candidate = queues[WINDOW].next;
+                unlink(candidate);
+                append(PROBATION, candidate);
+                if (sizes[PROBATION] + sizes[PROTECTED] <= mainMax) continue;
+                Node victim = queues[PROBATION].next;
+                if (victim == candidate && sizes[PROTECTED] > 0) victim = queues[PROTECTED].next;
+                Node loser = victim != candidate && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash) ? victim : candidate;
+                unlink(loser);
+                nodes.remove(loser.key);
+                evictions.increment();
+            }
+        }
+
+        private void append(int queue, Node n) {
+            Node head = queues[queue];
+            n.queue = queue;
+            n.prev = head.prev;
+            n.next = head;
+            head.prev.next = n;
+            head.prev = n;
+            sizes[queue]++;
+        }
+
+        private void unlink(Node n) {
+            n.prev.next = n.next;
+            n.next.prev = n.prev;
+            sizes[n.queue]--;
+        }
+
+        private Node sentinel() {
+            Node s = new Node(null, 0, null);
+            s.prev = s;
+            s.next = s;
+            return s;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+/** JMX view of catalog-wide gauges and contention counters, registered as inventory:type=Catalog. */
+public interface CatalogMetricsMXBean {
+    long getSkuCount();
+    long getLowStockCount();
+    String getTotalValue();
+    long getHeapUsedBytes();
+    /** Mutations that found their barcode stripe locked by another writer. */
+    long getStripeContention();
+    /** Mutations that had to wait for a checkpoint or stats snapshot to finish. */
+    long getGateWaits();
+    /** Optimistic store reads retried under a lock because a write intervened. */
+    long getReadRetries();
+}
\ No newline at end of file
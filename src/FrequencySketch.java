@@ -0,0 +1,73 @@
+/**
+ * Count-min sketch of how often keys were seen, for cache admission. Each key has
+ * four 4-bit counters, in four different longs of one table, and its estimate is
+ * the smallest of them. After ten increments per entry of capacity every counter
+ * is halved, so the estimates follow recent popularity rather than all history.
+ * Not thread-safe; callers hold their own lock.
+ */
+public class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;
+    private final int sampleSize;
+    private int additions;
+
+    public FrequencySketch(int capacity) {
+        int n = Math.max(capacity, 16);
+        table = new long[Integer.highestOneBit(n - 1) << 1];
+        sampleSize = 10 * n;
+    }
+
+    /** Estimated recent count of {@code hash}, from 0 to 15. */
+    public int frequency(int hash) {
+        int h = spread(hash);
+        int start = (h & 3) << 2;
+        int min = 15;
+        for (int i = 0; i < 4; i++) {
+            int count = (int) ((table[indexOf(h, i)] >>> ((start + i) << 2)) & 0xfL);
+            min = Math.min(min, count);
+        }
+        return min;
+    }
+
+    public void increment(int hash) {
+        int h = spread(hash);
+        int start = (h & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) added |= incrementAt(indexOf(h, i), start + i);
+        if (added && ++additions == sampleSize) reset();
+    }
+
+    private boolean incrementAt(int i, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[i] & mask) == mask) return false;
+        table[i] += 1L << offset;
+        return true;
+    }
+
+    // halves every counter; the odd counts lost to the shift are taken off the additions
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = (additions >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int h, int i) {
+        long x = (h + SEEDS[i]) * SEEDS[i];
+        x += x >>> 32;
+        return (int) x & (table.length - 1);
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running catalog aggregates kept in striped fixed-point counters, updated in O(1)
+ * per mutation. Value is in cents (the scale of Product.getTotalValue) and units are
+ * in thousandths. A product must not be mutated in place while it is counted, since
+ * remove() subtracts whatever it reports at that moment. Low stock depends on
+ * per-product reorder points and is counted by ReorderPoints instead.
+ */
+public class InventoryAggregates {
+
+    private static final int UNIT_SCALE = 3;
+
+    private final LongAdder valueCents = new LongAdder();
+    private final LongAdder skuCount = new LongAdder();
+    private final Map<String, LongAdder> unitsByType = new ConcurrentHashMap<>();
+
+    public void add(Product p) {
+        apply(share(p), 1);
+    }
+
+    public void remove(Product p) {
+        apply(share(p), -1);
+    }
+
+    void add(Share s) {
+        apply(s, 1);
+    }
+
+    void remove(Share s) {
+        apply(s, -1);
+    }
+
+    /**
+     * What {@code p} contributes to the totals. Mutations work these out before they
+     * change anything, so a product too large to count is rejected with an
+     * IllegalArgumentException rather than leaving the totals half updated.
+     */
+    static Share share(Product p) {
+        BigInteger cents = p.getTotalValue().unscaledValue();
+        if (cents.bitLength() > 63) throw new IllegalArgumentException("Stock value too large: " + p.getTotalValue().toPlainString());
+        BigInteger units = BigDecimal.valueOf(p.getQuantity()).setScale(UNIT_SCALE, RoundingMode.HALF_UP).unscaledValue();
+        if (units.bitLength() > 63) throw new IllegalArgumentException("Quantity too large: " + p.getQuantity());
+        return new Share(p.getUnit(), cents.longValue(), units.longValue());
+    }
+
+    public void clear() {
+        valueCents.reset();
+        skuCount.reset();
+        unitsByType.clear();
+    }
+
+    /** Total value on its own; a single counter read, no lock needed. */
+    public BigDecimal totalValue() {
+        return BigDecimal.valueOf(valueCents.sum(), 2);
+    }
+
+    /** Reads every counter; consistent only if no mutation is in flight. */
+    public Snapshot snapshot(long lowStockCount) {
+        Map<String, BigDecimal> units = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : unitsByType.entrySet()) {
+            long v = e.getValue().sum();
+            if (v != 0) units.put(e.getKey(), BigDecimal.valueOf(v, UNIT_SCALE));
+        }
+        return new Snapshot(BigDecimal.valueOf(valueCents.sum(), 2), skuCount.sum(), lowStockCount, units);
+    }
+
+    private void apply(Share s, int sign) {
+        valueCents.add(sign * s.cents);
+        skuCount.add(sign);
+        unitsByType.computeIfAbsent(s.unit, k -> new LongAdder()).add(sign * s.units);
+    }
+
+    static final class Share {
+        final String unit;
+        final long cents;
+        final long units;
+
+        Share(String unit, long cents, long units) {
+            this.unit = unit;
+            this.cents = cents;
+            this.units = units;
+        }
+    }
+
+    public static final class Snapshot {
+        private final BigDecimal totalValue;
+        private final long skuCount;
+        private final long lowStockCount;
+        private final Map<String, BigDecimal> unitsByType;
+
+        Snapshot(BigDecimal totalValue, long skuCount, long lowStockCount, Map<String, BigDecimal> unitsByType) {
+            this.totalValue = totalValue;
+            this.skuCount = skuCount;
+            this.lowStockCount = lowStockCount;
+            this.unitsByType = Collections.unmodifiableMap(unitsByType);
+        }
+
+        public BigDecimal getTotalValue() { return totalValue; }
+        public long getSkuCount() { return skuCount; }
+        public long getLowStockCount() { return lowStockCount; }
+        public Map<String, BigDecimal> getUnitsByType() { return unitsByType; }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,346 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk import and streaming export of the catalog as CSV or as a compact binary
+ * format. Imports memory-map the file, split it into chunks on record boundaries
+ * and parse the chunks in parallel on the common fork-join pool; each chunk is
+ * validated through the Product constructor and handed to InventoryManager.addAll
+ * as soon as it is parsed, so heap use is bounded by the chunks in flight.
+ *
+ * CSV: header line, then barcode,name,quantity,unit,price. Fields may be quoted
+ * with "" escaping but may not span lines.
+ * Binary: [int magic][blocks...], block = [int count][int bytes][records], records
+ * use the journal's product encoding.
+ */
+public class InventoryBulkIO {
+
+    public static final String CSV_HEADER = "barcode,name,quantity,unit,price";
+
+    private static final int BINARY_MAGIC = 0x494E5642; // "INVB"
+    private static final int CHUNK_BYTES = 8 << 20;
+    private static final int BLOCK_RECORDS = 64 * 1024;
+    private static final int MAX_ERRORS = 100;
+
+    /** Outcome of an import: rows added, rows skipped as already present, rows rejected. */
+    public static final class ImportResult {
+        private final AtomicLong added = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        public long getAdded() { return added.get(); }
+        public long getDuplicates() { return duplicates.get(); }
+        public long getRejected() { return rejected.get(); }
+        /** The first rejected rows with their byte offset and reason. */
+        public List<String> getErrors() { return new ArrayList<>(errors); }
+
+        void reject(long offset, String reason) {
+            if (rejected.incrementAndGet() <= MAX_ERRORS) errors.add("at byte " + offset + ": " + reason);
+        }
+
+        void inserted(int batchSize, int addedCount) {
+            added.addAndGet(addedCount);
+            duplicates.addAndGet(batchSize - addedCount);
+        }
+    }
+
+    private InventoryBulkIO() {
+    }
+
+    public static ImportResult importCsv(Path file, InventoryManager manager) throws IOException {
+        ImportResult result = new ImportResult();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long start = skipLine(ch, 0, size); // header
+            List<long[]> chunks = new ArrayList<>();
+            while (start < size) {
+                long end = Math.min(size, start + CHUNK_BYTES);
+                if (end < size) end = skipLine(ch, end, size);
+                chunks.add(new long[]{start, end});
+                start = end;
+            }
+            runAll(chunks, range -> parseCsvChunk(ch, range[0], range[1], manager, result));
+        }
+        return result;
+    }
+
+    public static ImportResult importBinary(Path file, InventoryManager manager) throws IOException {
+        ImportResult result = new ImportResult();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer header = ByteBuffer.allocate(8);
+            if (readFully(ch, header.limit(4), 0) < 4 || header.getInt(0) != BINARY_MAGIC) {
+                throw new IOException("Not an inventory binary file: " + file);
+            }
+            List<long[]> blocks = new ArrayList<>();
+            long pos = 4;
+            while (pos < size) {
+                header.clear();
+                if (readFully(ch, header, pos) < 8) throw new IOException("Truncated block header at byte " + pos);
+                int bytes = header.getInt(4);
+                if (bytes < 0 || pos + 8 + bytes > size) throw new IOException("Truncated block at byte " + pos);
+                blocks.add(new long[]{pos + 8, pos + 8 + bytes, header.getInt(0)});
+                pos += 8 + bytes;
+            }
+            runAll(blocks, block -> parseBinaryBlock(ch, block[0], block[1], (int) block[2], manager, result));
+        }
+        return result;
+    }
+
+    public static long exportCsv(Path file, InventoryManager manager) throws IOException {
+        long[] n = new long[1];
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+            StringBuilder line = new StringBuilder(128);
+            export(manager, p -> {
+                line.setLength(0);
+                appendCsv(line, p.getBarcode()).append(',');
+                appendCsv(line, p.getName()).append(',');
+                line.append(BigDecimal.valueOf(p.getQuantity()).toPlainString()).append(',');
+                appendCsv(line, p.getUnit()).append(',');
+                line.append(p.getPrice().toPlainString()).append('\n');
+                out.append(line);
+                n[0]++;
+            });
+        }
+        return n[0];
+    }
+
+    public static long exportBinary(Path file, InventoryManager manager) throws IOException {
+        long[] n = new long[1];
+        try (OutputStream raw = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            DataOutputStream out = new DataOutputStream(raw);
+            out.writeInt(BINARY_MAGIC);
+            ByteArrayOutputStream block = new ByteArrayOutputStream(1 << 20);
+            DataOutputStream records = new DataOutputStream(block);
+            int[] count = new int[1];
+            export(manager, p -> {
+                InventoryJournal.writeProduct(records, p);
+                if (++count[0] == BLOCK_RECORDS) {
+                    writeBlock(out, block, count[0]);
+                    n[0] += count[0];
+                    count[0] = 0;
+                }
+            });
+            if (count[0] > 0) writeBlock(out, block, count[0]);
+            n[0] += count[0];
+            out.flush();
+        }
+        return n[0];
+    }
+
+    private interface ProductWriter {
+        void write(Product p) throws IOException;
+    }
+
+    // Streams one snapshot of the catalog, so the file is consistent and export never
+    // holds more than the store's scan batch.
+    private static void export(InventoryManager manager, ProductWriter writer) throws IOException {
+        try (InventorySnapshot snapshot = manager.snapshot()) {
+            snapshot.forEachProduct(p -> {
+                try {
+                    writer.write(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface ChunkTask {
+        void run(long[] range) throws IOException;
+    }
+
+    private static void runAll(List<long[]> ranges, ChunkTask task) throws IOException {
+        List<RecursiveAction> actions = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            actions.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    try {
+                        task.run(range);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        }
+        try {
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(actions);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // fork-join may rewrap the exception when rethrowing it on this thread
+            Throwable cause = e.getCause();
+            while (cause instanceof UncheckedIOException) cause = cause.getCause();
+            throw (IOException) cause;
+        }
+    }
+
+    private static void parseCsvChunk(FileChannel ch, long start, long end, InventoryManager manager, ImportResult result) throws IOException {
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        List<Product> batch = new ArrayList<>();
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder(64);
+        byte[] scratch = new byte[256];
+        int pos = 0;
+        int limit = buf.limit();
+        while (pos < limit) {
+            int lineStart = pos;
+            int lineEnd = pos;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n') lineEnd++;
+            pos = lineEnd + 1;
+            int contentEnd = lineEnd > lineStart && buf.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd == lineStart) continue;
+            if (scratch.length < contentEnd - lineStart) scratch = new byte[contentEnd - lineStart];
+            int len = contentEnd - lineStart;
+            buf.get(lineStart, scratch, 0, len);
+            String line = new String(scratch, 0, len, StandardCharsets.UTF_8);
+            try {
+                splitCsv(line, fields, field);
+                if (fields.size() != 5) throw new IllegalArgumentException("expected 5 fields, got " + fields.size());
+                Product p = new Product(fields.get(0), fields.get(1), Double.parseDouble(fields.get(2)), fields.get(3), new BigDecimal(fields.get(4)));
+                InventoryManager.checkAddable(p);
+                batch.add(p);
+            } catch (IllegalArgumentException e) {
+                result.reject(start + lineStart, e.getMessage());
+            }
+        }
+        result.inserted(batch.size(), manager.addAll(batch));
+    }
+
+    private static void parseBinaryBlock(FileChannel ch, long start, long end, int count, InventoryManager manager, ImportResult result) throws IOException {
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        DataInputStream in = new DataInputStream(new BufferInput(buf));
+        List<Product> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long offset = start + buf.position();
+            try {
+                Product p = InventoryJournal.readProduct(in);
+                InventoryManager.checkAddable(p);
+                batch.add(p);
+            } catch (IllegalArgumentException e) {
+                result.reject(offset, e.getMessage());
+            }
+        }
+        result.inserted(batch.size(), manager.addAll(batch));
+    }
+
+    private static void splitCsv(String line, List<String> fields, StringBuilder field) {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("unterminated quoted field");
+        fields.add(field.toString());
+    }
+
+    private static StringBuilder appendCsv(StringBuilder sb, String value) {
+        if (value == null) return sb;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return sb.append(value);
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r') c = ' '; // records may not span lines
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private static void writeBlock(DataOutputStream out, ByteArrayOutputStream block, int count) throws IOException {
+        out.writeInt(count);
+        out.writeInt(block.size());
+        block.writeTo(out);
+        block.reset();
+    }
+
+    // Returns the offset just past the next '\n' at or after pos.
+    private static long skipLine(FileChannel ch, long pos, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        while (pos < size) {
+            buf.clear();
+            int n = ch.read(buf, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static int readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        int total = 0;
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+
+    private static final class BufferInput extends InputStream {
+        private final ByteBuffer buf;
+        BufferInput(ByteBuffer buf) { this.buf = buf; }
+        @Override public int read() { return buf.hasRemaining() ? buf.get() & 0xFF : -1; }
+        @Override public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
\ No newline at end of file
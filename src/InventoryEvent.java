@@ -0,0 +1,47 @@
+/**
+ * One committed catalog change, as published by InventoryManager.events(). Sequence
+ * numbers are assigned in commit order, so for any one barcode a higher sequence is
+ * always the later state.
+ */
+public final class InventoryEvent {
+
+    /**
+     * RESYNC stands in for changes dropped because subscribers fell too far behind;
+     * reload the catalog on it. It carries no products.
+     */
+    public enum Kind { ADDED, UPDATED, RENAMED, DELETED, RESYNC }
+
+    private final long sequence;
+    private final Kind kind;
+    private final Product previous;
+    private final Product product;
+
+    InventoryEvent(long sequence, Kind kind, Product previous, Product product) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.previous = previous;
+        this.product = product;
+    }
+
+    public long getSequence() { return sequence; }
+    public Kind getKind() { return kind; }
+    /** State before the change; null for ADDED. */
+    public Product getPrevious() { return previous; }
+    /** State after the change; null for DELETED. */
+    public Product getProduct() { return product; }
+
+    /** Barcode after the change, or the removed barcode for DELETED; null for RESYNC. */
+    public String getBarcode() {
+        return product != null ? product.getBarcode() : previous == null ? null : previous.getBarcode();
+    }
+
+    /** Barcode before the change; null for ADDED. Differs from getBarcode only for RENAMED. */
+    public String getPreviousBarcode() {
+        return previous == null ? null : previous.getBarcode();
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + kind + " " + (kind == Kind.RENAMED ? getPreviousBarcode() + " -> " : "") + getBarcode();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Publishes committed catalog changes to Flow subscribers as batches of events.
+ * Mutations append to a bounded queue while still holding their stripe locks, so
+ * events for a barcode are queued in commit order. A dispatcher thread drains
+ * whatever has accumulated into one batch: a subscriber that keeps up sees small
+ * batches, one that falls behind sees fewer and larger ones. Each subscriber buffers
+ * a bounded number of batches, and the dispatcher waits while any of those buffers
+ * is full, so one stalled subscriber holds up delivery to all. Writers never wait
+ * for subscribers: once the queue is full too, its events are replaced by a single
+ * RESYNC and every subscriber is expected to reload. Nothing is queued until the
+ * first subscriber arrives.
+ */
+public class InventoryEvents implements Flow.Publisher<List<InventoryEvent>> {
+
+    static final int MAX_BATCH = 4096;
+    private static final int CAPACITY = 1 << 18;
+
+    private final ExecutorService delivery = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "inventory-events");
+        t.setDaemon(true);
+        return t;
+    });
+    private final SubmissionPublisher<List<InventoryEvent>> publisher = new SubmissionPublisher<>(delivery, Flow.defaultBufferSize());
+    private final ArrayDeque<InventoryEvent> pending = new ArrayDeque<>();
+    private long sequence;
+    private volatile boolean active;
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<InventoryEvent>> subscriber) {
+        synchronized (pending) {
+            if (!active) {
+                Thread t = new Thread(this::dispatch, "inventory-events-dispatch");
+                t.setDaemon(true);
+                t.start();
+                active = true;
+            }
+        }
+        publisher.subscribe(subscriber);
+    }
+
+    // Called with the mutation's locks held, so it must not block: the caller may be
+    // what a slow subscriber is itself waiting on
+    void publish(InventoryEvent.Kind kind, Product previous, Product product) {
+        if (!active) return;
+        synchronized (pending) {
+            if (pending.size() >= CAPACITY) {
+                // the queued changes, and this one, are all covered by a reload
+                pending.clear();
+                pending.add(new InventoryEvent(++sequence, InventoryEvent.Kind.RESYNC, null, null));
+            } else {
+                pending.add(new InventoryEvent(++sequence, kind, previous, product));
+            }
+            if (pending.size() == 1) pending.notifyAll();
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            List<InventoryEvent> batch;
+            synchronized (pending) {
+                while (pending.isEmpty()) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                batch = new ArrayList<>(Math.min(pending.size(), MAX_BATCH));
+                while (!pending.isEmpty() && batch.size() < MAX_BATCH) batch.add(pending.poll());
+            }
+            try {
+                // blocks while any subscriber's buffer is full
+                publisher.submit(Collections.unmodifiableList(batch));
+            } catch (RuntimeException e) {
+                System.err.println("Inventory event delivery failed: " + e);
+            }
+        }
+    }
+}
\ No newline at end of file
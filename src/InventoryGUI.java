@@ -1,16 +1,29 @@
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -20,29 +33,51 @@ import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 
 public class InventoryGUI extends JFrame {
 
+    private static final int SEARCH_DELAY_MS = 150;
+    // Larger change batches (e.g. an import) reload the view instead of patching it row by row
+    private static final int MAX_INCREMENTAL_BATCH = 256;
+    // While the catalog loads the table is reloaded each time it doubles, starting here
+    private static final long LOAD_REFRESH_MIN = 1000;
+
     private final JTextField txtBarcode = new JTextField(15);
     private final JTextField txtName = new JTextField(15);
     private final JTextField txtQuantity = new JTextField(8);
     private final JTextField txtPrice = new JTextField(8);
+    private final JTextField txtReorder = new JTextField(8);
     private final JComboBox<String> comboUnit = new JComboBox<>(new String[]{"pcs","kg","g","liter","ml"});
     private final JComboBox<String> comboCurrency = new JComboBox<>(new String[]{"₹","$","€"});
     private final JTextField txtSearch = new JTextField(20);
 
     private final JTable table;
-    private final DefaultTableModel model;
-    private final TableRowSorter<DefaultTableModel> sorter;
+    private final ProductTableModel model;
+    private final TableRowSorter<ProductTableModel> sorter;
 
     private final InventoryManager manager = InventoryManager.getInstance();
     private String originalBarcode = null; // track when updating
+    private Double originalReorder = null; // explicit reorder point when the form was filled
+
+    // Searches run one at a time off the EDT; only the newest one may publish rows
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "inventory-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Timer searchTimer = new Timer(SEARCH_DELAY_MS, e -> runSearch());
+    private Future<?> pendingSearch;
+    private long searchGeneration;
+    private final AtomicBoolean alertRepaintQueued = new AtomicBoolean();
 
     private final JLabel lblTotal = new JLabel("Total: ₹0.00", SwingConstants.RIGHT);
+    // Disabled while the catalog loads, since mutations would wait for it on the EDT
+    private final JButton[] writeActions;
 
     public InventoryGUI() {
         super("Inventory Management");
@@ -79,6 +114,10 @@ public class InventoryGUI extends JFrame {
         c.gridx = 0; c.gridy = 5; form.add(new JLabel("Currency:"), c);
         c.gridx = 1; form.add(comboCurrency, c);
 
+        c.gridx = 0; c.gridy = 6; form.add(new JLabel("Reorder at:"), c);
+        c.gridx = 1; form.add(txtReorder, c);
+        txtReorder.setToolTipText("Blank for the default of " + ReorderPoints.DEFAULT_REORDER_POINT);
+
         // Buttons
         JPanel actions = new JPanel();
         JButton btnAdd = new JButton("Add");
@@ -90,7 +129,15 @@ public class InventoryGUI extends JFrame {
         actions.add(btnDelete);
         actions.add(btnClear);
 
-        c.gridx = 0; c.gridy = 6; c.gridwidth = 2; form.add(actions, c);
+        c.gridx = 0; c.gridy = 7; c.gridwidth = 2; form.add(actions, c);
+
+        JPanel bulk = new JPanel();
+        JButton btnImport = new JButton("Import...");
+        JButton btnExport = new JButton("Export...");
+        bulk.add(btnImport);
+        bulk.add(btnExport);
+        c.gridy = 8; form.add(bulk, c);
+        writeActions = new JButton[]{btnAdd, btnUpdate, btnDelete, btnImport};
 
         // Search bar at top-right
         JPanel topRight = new JPanel(new BorderLayout(6, 6));
@@ -98,33 +145,37 @@ public class InventoryGUI extends JFrame {
         topRight.add(txtSearch, BorderLayout.CENTER);
 
         // Table
-        model = new DefaultTableModel(new String[]{"Barcode","Name","Quantity","Unit","Price","Total"}, 0) {
-            @Override public boolean isCellEditable(int row, int column) { return false; }
-        };
+        model = new ProductTableModel(manager);
         table = new JTable(model);
 
         sorter = new TableRowSorter<>(model);
         table.setRowSorter(sorter);
 
-        // Renderer to highlight low stock
-        table.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+        // Renderer formats only the cells being painted and highlights low stock
+        DefaultTableCellRenderer renderer = new DefaultTableCellRenderer() {
             @Override
             public Component getTableCellRendererComponent(javax.swing.JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
                 Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-                try {
-                    int modelRow = table.convertRowIndexToModel(row);
-                    Object q = model.getValueAt(modelRow, 2);
-                    double qty = Double.parseDouble(String.valueOf(q));
-                    if (!isSelected) {
-                        c.setBackground(qty < 5.0 ? new Color(255, 230, 230) : Color.WHITE);
-                    }
-                } catch (Exception e) {
-                    // ignore parsing errors
-                    if (!isSelected) c.setBackground(Color.WHITE);
+                if (!isSelected) {
+                    Product p = model.getProductAt(table.convertRowIndexToModel(row));
+                    c.setBackground(manager.isBelowReorderPoint(p.getBarcode()) ? new Color(255, 230, 230) : Color.WHITE);
                 }
                 return c;
             }
-        });
+
+            @Override
+            protected void setValue(Object value) {
+                if (value instanceof BigDecimal) {
+                    setText(((BigDecimal) value).setScale(2, RoundingMode.HALF_UP).toPlainString());
+                } else {
+                    setText(value == null ? "" : String.valueOf(value));
+                }
+            }
+        };
+        renderer.setHorizontalAlignment(SwingConstants.LEFT);
+        table.setDefaultRenderer(Object.class, renderer);
+        table.setDefaultRenderer(Double.class, renderer);
+        table.setDefaultRenderer(BigDecimal.class, renderer);
 
         // Layout composition
         JPanel left = new JPanel(new BorderLayout());
@@ -143,20 +194,40 @@ public class InventoryGUI extends JFrame {
         bottom.add(lblTotal, BorderLayout.EAST);
         root.add(bottom, BorderLayout.SOUTH);
 
-        // Load initial data
-        loadAllProductsToTable();
-        refreshTotalLabel();
-
         // Listeners
+        manager.events().subscribe(new Flow.Subscriber<List<InventoryEvent>>() {
+            private Flow.Subscription subscription;
+            @Override public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+            // ask for the next batch only once the EDT has applied this one
+            @Override public void onNext(List<InventoryEvent> batch) {
+                SwingUtilities.invokeLater(() -> {
+                    applyChanges(batch);
+                    subscription.request(1);
+                });
+            }
+            @Override public void onError(Throwable t) { System.err.println("Inventory event stream failed: " + t); }
+            @Override public void onComplete() { }
+        });
+        // A reorder point change alone produces no change event; repaint at most once per EDT pass
+        manager.addReorderListener(new ReorderPoints.Listener() {
+            @Override public void alertRaised(Product product, double reorderPoint) { queueAlertRepaint(); }
+            @Override public void alertCleared(String barcode) { queueAlertRepaint(); }
+        });
         btnAdd.addActionListener(e -> addProduct());
         btnUpdate.addActionListener(e -> updateProduct());
         btnDelete.addActionListener(e -> deleteProduct());
         btnClear.addActionListener(e -> clearForm());
+        btnImport.addActionListener(e -> importFile());
+        btnExport.addActionListener(e -> exportFile());
 
         table.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) populateFormFromSelection();
         });
 
+        searchTimer.setRepeats(false);
         txtSearch.getDocument().addDocumentListener(new SimpleDocumentListener() {
             @Override public void update() { applySearchFilter(); }
         });
@@ -165,31 +236,111 @@ public class InventoryGUI extends JFrame {
         setMinimumSize(new Dimension(900, 500));
     }
 
-    private void loadAllProductsToTable() {
-        model.setRowCount(0);
-        List<Product> all = manager.getAllProducts();
-        for (Product p : all) addRowForProduct(p);
+    /**
+     * Runs {@code loader} on a worker thread and fills the table and totals in as it
+     * reports progress, then enables editing once it returns. If it throws, editing
+     * stays disabled, since changes could not be journaled. Call on the EDT.
+     */
+    private void load(Consumer<InventoryJournal.Progress> loader) {
+        for (JButton b : writeActions) b.setEnabled(false);
+        lblTotal.setText("Loading catalog...");
+        new SwingWorker<Void, Long>() {
+            private long shown;
+
+            @Override protected Void doInBackground() {
+                loader.accept((read, total) -> publish(total == 0 ? 100 : read * 100 / total));
+                return null;
+            }
+            // Totals are read without the gate the loader holds; reloading only on
+            // doubling keeps the table's reloads to about one extra pass over the catalog
+            @Override protected void process(List<Long> percents) {
+                if (isDone()) return;
+                InventoryAggregates.Snapshot loaded = manager.getApproximateStats();
+                lblTotal.setText("Loading catalog " + percents.get(percents.size() - 1) + "%   SKUs: " + loaded.getSkuCount()
+                        + "   Total: " + comboCurrency.getSelectedItem() + " " + loaded.getTotalValue().setScale(2, RoundingMode.HALF_UP).toString());
+                if (loaded.getSkuCount() >= Math.max(LOAD_REFRESH_MIN, 2 * shown)) {
+                    shown = loaded.getSkuCount();
+                    runSearch();
+                }
+            }
+            @Override protected void done() {
+                runSearch();
+                try {
+                    get();
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    if (cause instanceof UncheckedIOException) cause = cause.getCause();
+                    System.err.println("Catalog load failed: " + cause);
+                    lblTotal.setText("Catalog not loaded, editing disabled: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(InventoryGUI.this, "Could not load the catalog: " + cause.getMessage()
+                            + "\nEditing is disabled because changes could not be saved.", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                for (JButton b : writeActions) b.setEnabled(true);
+                refreshTotalLabel();
+            }
+        }.execute();
+    }
+
+    // Each keystroke only restarts the debounce timer
+    private void applySearchFilter() {
+        searchTimer.restart();
     }
 
-    private void addRowForProduct(Product p) {
-        model.addRow(new Object[] {
-            p.getBarcode(),
-            p.getName(),
-            String.valueOf(p.getQuantity()),
-            p.getUnit(),
-            p.getPrice().setScale(2, RoundingMode.HALF_UP).toString(),
-            p.getTotalValue().setScale(2, RoundingMode.HALF_UP).toString()
+    /**
+     * Starts the query in the search box on the search thread, cancelling any earlier
+     * one. The result is dropped if a newer search started meanwhile, and the search is
+     * rerun if the table was edited after it began. Call on the EDT.
+     */
+    private void runSearch() {
+        searchTimer.stop();
+        if (pendingSearch != null) pendingSearch.cancel(true);
+        long generation = ++searchGeneration;
+        int version = model.getVersion();
+        String query = txtSearch.getText().trim();
+        pendingSearch = searchExecutor.submit(() -> {
+            List<Product> rows;
+            try {
+                rows = ProductTableModel.find(manager, query);
+            } catch (RuntimeException e) {
+                System.err.println("Search failed: " + e);
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+            SwingUtilities.invokeLater(() -> {
+                if (generation != searchGeneration) return;
+                if (version != model.getVersion()) runSearch();
+                else model.setRows(query, rows);
+            });
         });
     }
 
-    private void applySearchFilter() {
-        String text = txtSearch.getText();
-        if (text == null || text.trim().isEmpty()) {
-            sorter.setRowFilter(null);
-            return;
+    // Changes arrive from the manager whoever made them, including this form
+    private void applyChanges(List<InventoryEvent> batch) {
+        if (batch.size() > MAX_INCREMENTAL_BATCH || batch.stream().anyMatch(e -> e.getKind() == InventoryEvent.Kind.RESYNC)) {
+            searchTimer.restart();
+        } else {
+            model.apply(batch);
         }
-        String q = text.trim();
-        sorter.setRowFilter(javax.swing.RowFilter.regexFilter("(?i)" + java.util.regex.Pattern.quote(q)));
+        refreshTotalLabel();
+    }
+
+    private void queueAlertRepaint() {
+        if (!alertRepaintQueued.compareAndSet(false, true)) return;
+        SwingUtilities.invokeLater(() -> {
+            alertRepaintQueued.set(false);
+            table.repaint();
+            refreshTotalLabel();
+        });
+    }
+
+    // Blank means the default reorder point
+    private Double parseReorderPoint() {
+        String text = txtReorder.getText().trim();
+        if (text.isEmpty()) return null;
+        double v = Double.parseDouble(text);
+        if (v < 0) throw new NumberFormatException("Negative reorder point");
+        return v;
     }
 
     private void addProduct() {
@@ -210,6 +361,7 @@ public class InventoryGUI extends JFrame {
             if (qty < 0) throw new NumberFormatException("Negative quantity");
             BigDecimal price = new BigDecimal(priceText).setScale(2, RoundingMode.HALF_UP);
             if (price.compareTo(BigDecimal.ZERO) < 0) throw new NumberFormatException("Negative price");
+            Double reorderAt = parseReorderPoint();
 
             if (manager.containsBarcode(barcode)) {
                 JOptionPane.showMessageDialog(this, "Barcode already exists.", "Duplicate", JOptionPane.WARNING_MESSAGE);
@@ -217,10 +369,10 @@ public class InventoryGUI extends JFrame {
             }
 
             Product p = new Product(barcode, name, qty, unit, price);
-            manager.addProduct(p);
-            addRowForProduct(p);
-            clearForm();
-            refreshTotalLabel();
+            runWrite(() -> {
+                manager.addProduct(p);
+                if (reorderAt != null) manager.setReorderPoint(barcode, reorderAt);
+            }, this::clearForm);
         } catch (NumberFormatException nfe) {
             JOptionPane.showMessageDialog(this, "Numeric fields invalid or negative.", "Input Error", JOptionPane.ERROR_MESSAGE);
         } catch (IllegalArgumentException iae) {
@@ -252,22 +404,16 @@ public class InventoryGUI extends JFrame {
             if (qty < 0) throw new NumberFormatException("Negative quantity");
             BigDecimal price = new BigDecimal(priceText).setScale(2, RoundingMode.HALF_UP);
             if (price.compareTo(BigDecimal.ZERO) < 0) throw new NumberFormatException("Negative price");
+            Double reorderAt = parseReorderPoint();
 
             Product updated = new Product(barcode, name, qty, unit, price);
-            String old = originalBarcode != null ? originalBarcode : model.getValueAt(table.convertRowIndexToModel(sel), 0).toString();
-            manager.updateProduct(old, updated);
-
-            // update model row
-            int modelRow = table.convertRowIndexToModel(sel);
-            model.setValueAt(updated.getBarcode(), modelRow, 0);
-            model.setValueAt(updated.getName(), modelRow, 1);
-            model.setValueAt(String.valueOf(updated.getQuantity()), modelRow, 2);
-            model.setValueAt(updated.getUnit(), modelRow, 3);
-            model.setValueAt(updated.getPrice().toString(), modelRow, 4);
-            model.setValueAt(updated.getTotalValue().toString(), modelRow, 5);
-
-            clearForm();
-            refreshTotalLabel();
+            String old = originalBarcode != null ? originalBarcode : model.getProductAt(table.convertRowIndexToModel(sel)).getBarcode();
+            // the point moves with a rename, so only an edit of the field changes it
+            boolean reorderChanged = !Objects.equals(reorderAt, originalBarcode != null ? originalReorder : manager.getExplicitReorderPoint(old));
+            runWrite(() -> {
+                manager.updateProduct(old, updated);
+                if (reorderChanged) manager.setReorderPoint(barcode, reorderAt);
+            }, this::clearForm);
         } catch (NumberFormatException nfe) {
             JOptionPane.showMessageDialog(this, "Numeric fields invalid or negative.", "Input Error", JOptionPane.ERROR_MESSAGE);
         } catch (IllegalArgumentException iae) {
@@ -289,23 +435,100 @@ public class InventoryGUI extends JFrame {
         if (confirm != JOptionPane.YES_OPTION) return;
 
         int modelRow = table.convertRowIndexToModel(sel);
-        String barcode = model.getValueAt(modelRow, 0).toString();
-        manager.deleteProduct(barcode);
-        model.removeRow(modelRow);
-        clearForm();
-        refreshTotalLabel();
+        String barcode = model.getProductAt(modelRow).getBarcode();
+        runWrite(() -> manager.deleteProduct(barcode), this::clearForm);
+    }
+
+    /**
+     * Runs {@code write} on a worker thread, since a write waits for its journal fsync,
+     * then {@code onSuccess} on the EDT. Write actions stay disabled meanwhile so a
+     * second click cannot race the first; a rejected write is reported in a dialog.
+     */
+    private void runWrite(Runnable write, Runnable onSuccess) {
+        for (JButton b : writeActions) b.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<Void, Void>() {
+            @Override protected Void doInBackground() {
+                write.run();
+                return null;
+            }
+            @Override protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                for (JButton b : writeActions) b.setEnabled(true);
+                try {
+                    get();
+                    onSuccess.run();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    String message = cause instanceof IllegalArgumentException ? cause.getMessage() : "Unexpected error: " + cause.getMessage();
+                    JOptionPane.showMessageDialog(InventoryGUI.this, message, "Error", JOptionPane.ERROR_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }.execute();
+    }
+
+    // .csv files use the CSV format, anything else the binary format
+    private void importFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<InventoryBulkIO.ImportResult, Void>() {
+            @Override protected InventoryBulkIO.ImportResult doInBackground() throws Exception {
+                return isCsv(file) ? InventoryBulkIO.importCsv(file, manager) : InventoryBulkIO.importBinary(file, manager);
+            }
+            @Override protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    InventoryBulkIO.ImportResult r = get();
+                    StringBuilder msg = new StringBuilder("Added: " + r.getAdded() + "\nAlready present: " + r.getDuplicates() + "\nRejected: " + r.getRejected());
+                    for (String err : r.getErrors()) msg.append("\n  ").append(err);
+                    JOptionPane.showMessageDialog(InventoryGUI.this, msg.toString(), "Import", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(InventoryGUI.this, "Import failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void exportFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<Long, Void>() {
+            @Override protected Long doInBackground() throws Exception {
+                return isCsv(file) ? InventoryBulkIO.exportCsv(file, manager) : InventoryBulkIO.exportBinary(file, manager);
+            }
+            @Override protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    JOptionPane.showMessageDialog(InventoryGUI.this, "Exported " + get() + " products.", "Export", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(InventoryGUI.this, "Export failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private static boolean isCsv(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
     }
 
     private void populateFormFromSelection() {
         int sel = table.getSelectedRow();
         if (sel < 0) return;
-        int modelRow = table.convertRowIndexToModel(sel);
-        originalBarcode = String.valueOf(model.getValueAt(modelRow, 0));
+        Product p = model.getProductAt(table.convertRowIndexToModel(sel));
+        originalBarcode = p.getBarcode();
         txtBarcode.setText(originalBarcode);
-        txtName.setText(String.valueOf(model.getValueAt(modelRow, 1)));
-        txtQuantity.setText(String.valueOf(model.getValueAt(modelRow, 2)));
-        comboUnit.setSelectedItem(String.valueOf(model.getValueAt(modelRow, 3)));
-        txtPrice.setText(String.valueOf(model.getValueAt(modelRow, 4)));
+        txtName.setText(p.getName());
+        txtQuantity.setText(String.valueOf(p.getQuantity()));
+        comboUnit.setSelectedItem(p.getUnit());
+        txtPrice.setText(p.getPrice().setScale(2, RoundingMode.HALF_UP).toPlainString());
+        originalReorder = manager.getExplicitReorderPoint(originalBarcode);
+        txtReorder.setText(originalReorder == null ? "" : String.valueOf(originalReorder));
     }
 
     private void clearForm() {
@@ -313,16 +536,21 @@ public class InventoryGUI extends JFrame {
         txtName.setText("");
         txtQuantity.setText("");
         txtPrice.setText("");
+        txtReorder.setText("");
         comboUnit.setSelectedIndex(0);
         comboCurrency.setSelectedIndex(0);
         table.clearSelection();
         originalBarcode = null;
+        originalReorder = null;
     }
 
+    // Reads the totals without the mutation gate, so the EDT never waits behind
+    // writers or a journal recovery
     private void refreshTotalLabel() {
         try {
-            BigDecimal total = manager.getTotalInventoryValue();
-            lblTotal.setText("Total: " + comboCurrency.getSelectedItem() + " " + total.setScale(2, RoundingMode.HALF_UP).toString());
+            InventoryAggregates.Snapshot stats = manager.getApproximateStats();
+            lblTotal.setText("SKUs: " + stats.getSkuCount() + "   Low stock: " + stats.getLowStockCount()
+                    + "   Total: " + comboCurrency.getSelectedItem() + " " + stats.getTotalValue().setScale(2, RoundingMode.HALF_UP).toString());
         } catch (Exception e) {
             lblTotal.setText("Total: -");
         }
@@ -336,11 +564,16 @@ public class InventoryGUI extends JFrame {
         @Override default void changedUpdate(javax.swing.event.DocumentEvent e) { update(); }
     }
 
-    // Show UI on EDT
-    public static void showGui() {
+    /**
+     * Shows the window straight away, empty, then fills it from {@code loader}, which
+     * runs off the EDT and may report progress (e.g. journal recovery). Call from any
+     * thread.
+     */
+    public static void showGui(Consumer<InventoryJournal.Progress> loader) {
         SwingUtilities.invokeLater(() -> {
             InventoryGUI gui = new InventoryGUI();
             gui.setVisible(true);
+            gui.load(loader);
         });
     }
 }
\ No newline at end of file
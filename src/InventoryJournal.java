@@ -0,0 +1,602 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only write-ahead journal for InventoryManager mutations with
+ * group-commit fsync, plus compacted snapshots so recovery replays only the tail.
+ *
+ * Journal record: [int length][int crc32(payload)][payload], payload = seq, op, fields.
+ * Snapshot file:  [long magic][long seq]([byte 1][product])*[byte 0]
+ *                 ([byte 1][barcode][double reorder point])*[byte 0][long crc32].
+ * Snapshots written before reorder points existed (INVSNAP2) are still read.
+ */
+public class InventoryJournal implements Closeable {
+
+    static final byte OP_ADD = 1;
+    static final byte OP_UPDATE = 2;
+    static final byte OP_DELETE = 3;
+    static final byte OP_STOCK = 4;
+    static final byte OP_REORDER = 5;
+
+    private static final long SNAPSHOT_MAGIC = 0x494E56534E415033L; // "INVSNAP3"
+    private static final long SNAPSHOT_MAGIC_V2 = 0x494E56534E415032L; // "INVSNAP2", no reorder points
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final int MAX_RECORD = 64 << 20;
+    // products or records recovered between progress reports
+    private static final int PROGRESS_EVERY = 4096;
+
+    private final Path dir;
+    private final long snapshotEvery;
+    private final Runnable checkpointRequest;
+
+    // guarded by this
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private final ByteBuffer seqBuf = ByteBuffer.allocate(8);
+    private final CRC32 crc = new CRC32();
+    private long appendedSeq;
+    private long durableSeq;
+    private long sinceSnapshot;
+    private boolean checkpointRequested;
+    private boolean closed;
+    private IOException failure;
+    private FileChannel segment;
+
+    private final Thread flusher;
+
+    /** Recovery progress: bytes of snapshot and journal read so far, out of {@code total}. */
+    public interface Progress {
+        void update(long read, long total);
+    }
+
+    private InventoryJournal(Path dir, long lastSeq, long sinceSnapshot, long snapshotEvery, Runnable checkpointRequest) throws IOException {
+        this.dir = dir;
+        this.snapshotEvery = snapshotEvery;
+        this.checkpointRequest = checkpointRequest;
+        this.appendedSeq = lastSeq;
+        this.durableSeq = lastSeq;
+        this.sinceSnapshot = sinceSnapshot;
+        openSegment(lastSeq + 1);
+        flusher = new Thread(this::flushLoop, "inventory-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Recovers the latest snapshot and journal tail from {@code dir} into {@code target}
+     * and the explicit reorder points into {@code reorderPoints}, and returns a journal
+     * ready for appends. {@code checkpointRequest} is invoked from
+     * the flusher thread once {@code snapshotEvery} records have been logged since the
+     * last snapshot.
+     */
+    public static InventoryJournal open(Path dir, ProductStore target, Map<String, Double> reorderPoints,
+                                       long snapshotEvery, Runnable checkpointRequest) throws IOException {
+        return open(dir, target, reorderPoints, snapshotEvery, checkpointRequest, null);
+    }
+
+    /** Like open above, reporting to {@code progress} (if not null) from the calling thread as recovery goes. */
+    public static InventoryJournal open(Path dir, ProductStore target, Map<String, Double> reorderPoints,
+                                       long snapshotEvery, Runnable checkpointRequest, Progress progress) throws IOException {
+        Files.createDirectories(dir);
+        for (Path p : list(dir, SNAPSHOT_PREFIX, ".tmp")) Files.deleteIfExists(p);
+        long seq = 0;
+        Path snapshot = latest(dir, SNAPSHOT_PREFIX, ".dat");
+        List<Path> journals = list(dir, JOURNAL_PREFIX, ".log");
+        long total = snapshot == null ? 0 : Files.size(snapshot);
+        for (Path p : journals) total += Files.size(p);
+        long read = 0;
+        if (snapshot != null) {
+            seq = readSnapshot(snapshot, target, reorderPoints, progress, total);
+            read = Files.size(snapshot);
+        }
+        long snapshotSeq = seq;
+        for (int i = 0; i < journals.size(); i++) {
+            Path p = journals.get(i);
+            long size = Files.size(p);
+            seq = replay(p, seq, target, reorderPoints, progress, read, total, i == journals.size() - 1);
+            read += size;
+        }
+        if (progress != null) progress.update(total, total);
+        return new InventoryJournal(dir, seq, seq - snapshotSeq, snapshotEvery, checkpointRequest);
+    }
+
+    public long logAdd(Product p) {
+        return append(OP_ADD, null, p);
+    }
+
+    public long logUpdate(String oldBarcode, Product p) {
+        return append(OP_UPDATE, oldBarcode, p);
+    }
+
+    public long logDelete(String barcode) {
+        return append(OP_DELETE, barcode, null);
+    }
+
+    /** Logs a product's reorder point; {@code null} reverts it to the default. */
+    public long logReorder(String barcode, Double point) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(body);
+        try {
+            out.writeByte(OP_REORDER);
+            out.writeUTF(barcode);
+            out.writeBoolean(point != null);
+            if (point != null) out.writeDouble(point);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return append(body.toByteArray());
+    }
+
+    /** Logs the resulting products of one stock transaction as a single record. */
+    public long logStock(Collection<Product> changed) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 * changed.size() + 8);
+        DataOutputStream out = new DataOutputStream(body);
+        try {
+            out.writeByte(OP_STOCK);
+            out.writeInt(changed.size());
+            for (Product p : changed) writeProduct(out, p);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return append(body.toByteArray());
+    }
+
+    /** Blocks until every record up to {@code seq} has been forced to disk. */
+    public synchronized void awaitDurable(long seq) {
+        boolean interrupted = false;
+        while (durableSeq < seq && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (durableSeq < seq) throw new IllegalStateException("Journal write failed", failure);
+    }
+
+    /**
+     * Starts a new journal segment and returns the last sequence number of the old one.
+     * The caller must guarantee that no mutation is in flight, so that every record up
+     * to the returned sequence is already visible in the live map.
+     */
+    public long rotate() throws IOException {
+        long seq;
+        synchronized (this) {
+            seq = appendedSeq;
+            awaitDurable(seq);
+            segment.close();
+            openSegment(seq + 1);
+            sinceSnapshot = 0;
+        }
+        return seq;
+    }
+
+    /** Writes a compacted snapshot as of {@code seq} and drops files it supersedes. */
+    public void writeSnapshot(long seq, ProductStore products, Map<String, Double> reorderPoints) throws IOException {
+        try {
+            writeSnapshotFiles(seq, products, reorderPoints);
+        } finally {
+            synchronized (this) {
+                checkpointRequested = false;
+            }
+        }
+    }
+
+    private void writeSnapshotFiles(long seq, ProductStore products, Map<String, Double> reorderPoints) throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT_PREFIX + name(seq) + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(new ChannelOutput(ch), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeLong(seq);
+            // streamed rather than counted up front: the store is not copied and keeps
+            // changing underneath, which replaying the journal tail reconciles
+            try {
+                products.forEach(p -> {
+                    try {
+                        out.writeByte(1);
+                        writeProduct(out, p);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeByte(0);
+            for (Map.Entry<String, Double> e : reorderPoints.entrySet()) {
+                out.writeByte(1);
+                out.writeUTF(e.getKey());
+                out.writeDouble(e.getValue());
+            }
+            out.writeByte(0);
+            out.flush();
+            long sum = checked.getChecksum().getValue();
+            out.writeLong(sum);
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_PREFIX + name(seq) + ".dat"), StandardCopyOption.ATOMIC_MOVE);
+        // the segments below are only safe to drop once the rename itself is on disk
+        forceDirectory(dir);
+        for (Path p : list(dir, SNAPSHOT_PREFIX, ".dat")) {
+            if (seqOf(p, SNAPSHOT_PREFIX) < seq) Files.deleteIfExists(p);
+        }
+        for (Path p : list(dir, JOURNAL_PREFIX, ".log")) {
+            if (seqOf(p, JOURNAL_PREFIX) <= seq) Files.deleteIfExists(p);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            segment.close();
+            if (failure != null) throw failure;
+        }
+    }
+
+    // Fields are encoded outside the monitor; only sequencing, the checksum and the
+    // copy into the pending batch happen under it.
+    private long append(byte op, String barcode, Product p) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(body);
+        try {
+            out.writeByte(op);
+            if (barcode != null) out.writeUTF(barcode);
+            if (p != null) writeProduct(out, p);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return append(body.toByteArray());
+    }
+
+    private long append(byte[] bytes) {
+        if (bytes.length + 8 > MAX_RECORD) throw new IllegalArgumentException("Journal record too large: " + bytes.length + " bytes");
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Journal is closed");
+            if (failure != null) throw new IllegalStateException("Journal write failed", failure);
+            long seq = appendedSeq + 1;
+            seqBuf.clear();
+            seqBuf.putLong(seq);
+            crc.reset();
+            crc.update(seqBuf.array(), 0, 8);
+            crc.update(bytes, 0, bytes.length);
+            boolean wake = pending.size() == 0;
+            writeInt(pending, 8 + bytes.length);
+            writeInt(pending, (int) crc.getValue());
+            pending.write(seqBuf.array(), 0, 8);
+            pending.write(bytes, 0, bytes.length);
+            appendedSeq = seq;
+            sinceSnapshot++;
+            if (wake) notifyAll();
+            return seq;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchSeq;
+            boolean requestCheckpoint = false;
+            FileChannel ch;
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // keep flushing until closed
+                    }
+                }
+                if (pending.size() == 0) return;
+                batch = pending;
+                pending = new ByteArrayOutputStream(Math.max(64 * 1024, batch.size()));
+                batchSeq = appendedSeq;
+                ch = segment;
+                if (sinceSnapshot >= snapshotEvery && !checkpointRequested && checkpointRequest != null) {
+                    checkpointRequested = true;
+                    requestCheckpoint = true;
+                }
+            }
+            try {
+                ByteBuffer buf = ByteBuffer.wrap(batch.toByteArray());
+                while (buf.hasRemaining()) ch.write(buf);
+                ch.force(false);
+                synchronized (this) {
+                    durableSeq = batchSeq;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            if (requestCheckpoint) checkpointRequest.run();
+        }
+    }
+
+    private void openSegment(long startSeq) throws IOException {
+        segment = FileChannel.open(dir.resolve(JOURNAL_PREFIX + name(startSeq) + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        forceDirectory(dir);
+    }
+
+    /** Makes a file created or renamed in {@code dir} survive a crash, where the platform allows it. */
+    static void forceDirectory(Path dir) throws IOException {
+        FileChannel ch;
+        try {
+            ch = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // directories cannot be opened on Windows; renames there are durable already
+        }
+        try (ch) {
+            ch.force(true);
+        }
+    }
+
+    private static long readSnapshot(Path file, ProductStore target, Map<String, Double> reorderPoints,
+                                     Progress progress, long total) throws IOException {
+        CountingInputStream counted = new CountingInputStream(Files.newInputStream(file));
+        try (InputStream raw = new BufferedInputStream(counted, 1 << 16)) {
+            CheckedInputStream checked = new CheckedInputStream(raw, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            long magic = in.readLong();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V2) throw new IOException("Not a snapshot file: " + file);
+            long seq = in.readLong();
+            for (long n = 1; in.readByte() != 0; n++) {
+                target.put(readProduct(in));
+                if (progress != null && n % PROGRESS_EVERY == 0) progress.update(counted.count, total);
+            }
+            if (magic == SNAPSHOT_MAGIC) {
+                while (in.readByte() != 0) {
+                    reorderPoints.put(in.readUTF(), in.readDouble());
+                }
+            }
+            long expected = checked.getChecksum().getValue();
+            if (new DataInputStream(raw).readLong() != expected) throw new IOException("Snapshot checksum mismatch: " + file);
+            return seq;
+        }
+    }
+
+    /**
+     * Applies records after {@code seq}. A torn or corrupt tail of the {@code last}
+     * segment is what a crash mid-append leaves and is truncated away; anywhere else it
+     * means lost records, and recovery fails rather than skip them.
+     */
+    private static long replay(Path file, long seq, ProductStore target, Map<String, Double> reorderPoints,
+                               Progress progress, long before, long total, boolean last) throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            CRC32 crc = new CRC32();
+            for (long n = 1; ; n++) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (len <= 0 || len > MAX_RECORD) break;
+                int sum;
+                byte[] payload = new byte[len];
+                try {
+                    sum = in.readInt();
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, len);
+                if ((int) crc.getValue() != sum) break;
+                DataInputStream rec = new DataInputStream(new ByteArrayInputStream(payload));
+                long recSeq = rec.readLong();
+                if (recSeq > seq) {
+                    apply(rec.readByte(), rec, target, reorderPoints);
+                    seq = recSeq;
+                }
+                valid += 8 + len;
+                if (progress != null && n % PROGRESS_EVERY == 0) progress.update(before + valid, total);
+            }
+        }
+        if (valid < Files.size(file)) {
+            if (!last) throw new IOException("Journal segment corrupt at byte " + valid + ", and later segments follow it: " + file);
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(valid);
+                ch.force(true);
+            }
+        }
+        return seq;
+    }
+
+    private static void apply(byte op, DataInputStream rec, ProductStore target, Map<String, Double> reorderPoints) throws IOException {
+        switch (op) {
+            case OP_ADD:
+                target.put(readProduct(rec));
+                break;
+            case OP_UPDATE: {
+                String old = rec.readUTF();
+                Product p = readProduct(rec);
+                target.remove(old);
+                target.put(p);
+                if (!old.equals(p.getBarcode())) {
+                    Double point = reorderPoints.remove(old);
+                    if (point != null) reorderPoints.put(p.getBarcode(), point);
+                }
+                break;
+            }
+            case OP_DELETE: {
+                String barcode = rec.readUTF();
+                target.remove(barcode);
+                reorderPoints.remove(barcode);
+                break;
+            }
+            case OP_STOCK: {
+                int n = rec.readInt();
+                for (int i = 0; i < n; i++) {
+                    target.put(readProduct(rec));
+                }
+                break;
+            }
+            case OP_REORDER: {
+                String barcode = rec.readUTF();
+                if (rec.readBoolean()) reorderPoints.put(barcode, rec.readDouble());
+                else reorderPoints.remove(barcode);
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal op: " + op);
+        }
+    }
+
+    /**
+     * Rejects a product writeProduct cannot encode, so mutations can check before they
+     * change anything: a price beyond a long of cents, or a string over 65535 UTF bytes.
+     */
+    static void checkEncodable(Product p) {
+        if (p.getPrice().unscaledValue().bitLength() > 63) throw new IllegalArgumentException("Price too large: " + p.getPrice().toPlainString());
+        checkUtf("Barcode", p.getBarcode());
+        if (p.getName() != null) checkUtf("Name", p.getName());
+        checkUtf("Unit", p.getUnit());
+    }
+
+    private static void checkUtf(String what, String s) {
+        // DataOutputStream.writeUTF's modified UTF-8: 1 byte for U+0001..U+007F, 3 above U+07FF, else 2
+        if (s.length() * 3 <= 0xFFFF) return;
+        long bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            bytes += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        if (bytes > 0xFFFF) throw new IllegalArgumentException(what + " too long: " + bytes + " bytes encoded");
+    }
+
+    static void writeProduct(DataOutputStream out, Product p) throws IOException {
+        out.writeUTF(p.getBarcode());
+        writeNullable(out, p.getName());
+        out.writeDouble(p.getQuantity());
+        out.writeUTF(p.getUnit());
+        BigDecimal price = p.getPrice();
+        out.writeLong(price.unscaledValue().longValueExact());
+    }
+
+    static Product readProduct(DataInputStream in) throws IOException {
+        String barcode = in.readUTF();
+        String name = readNullable(in);
+        double quantity = in.readDouble();
+        String unit = in.readUTF();
+        BigDecimal price = BigDecimal.valueOf(in.readLong(), 2);
+        return new Product(barcode, name, quantity, unit, price);
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private static String name(long seq) {
+        return String.format("%020d", seq);
+    }
+
+    private static long seqOf(Path p, String prefix) {
+        String n = p.getFileName().toString();
+        return Long.parseLong(n.substring(prefix.length(), n.indexOf('.')));
+    }
+
+    private static Path latest(Path dir, String prefix, String suffix) throws IOException {
+        List<Path> all = list(dir, prefix, suffix);
+        return all.isEmpty() ? null : all.get(all.size() - 1);
+    }
+
+    private static List<Path> list(Path dir, String prefix, String suffix) throws IOException {
+        List<Path> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, prefix + "*" + suffix)) {
+            for (Path p : ds) out.add(p);
+        }
+        out.sort(null); // zero-padded sequence numbers sort lexically
+        return out;
+    }
+
+    // Counts bytes taken from the file, for progress reports
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) { super(in); }
+
+        @Override public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    // Adapts a FileChannel to OutputStream without the synchronization of Channels.newOutputStream
+    private static final class ChannelOutput extends OutputStream {
+        private final FileChannel ch;
+        ChannelOutput(FileChannel ch) { this.ch = ch; }
+        @Override public void write(int b) throws IOException { write(new byte[]{(byte) b}, 0, 1); }
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+            while (buf.hasRemaining()) ch.write(buf);
+        }
+    }
+}
\ No newline at end of file
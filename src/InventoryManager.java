@@ -1,17 +1,75 @@
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.TreeMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 public class InventoryManager {
 
     private static volatile InventoryManager instance;
-    private final Map<String, Product> products;
+    private static final long SNAPSHOT_EVERY = 1_000_000;
 
-    private InventoryManager() {
-        products = new ConcurrentHashMap<>();
+    private final ProductStore products;
+    private final SearchIndex index;
+    private final InventoryAggregates aggregates = new InventoryAggregates();
+    private final InventoryEvents events = new InventoryEvents();
+    private final ReorderPoints reorder = new ReorderPoints();
+    private final InventoryMetrics metrics = new InventoryMetrics();
+
+    // Mutations hold the read side while applying, logging and counting; checkpoints
+    // and stats snapshots take the write side briefly to see no change half-applied.
+    private final ReentrantReadWriteLock mutationGate = new ReentrantReadWriteLock();
+    private final Object checkpointLock = new Object();
+    private volatile InventoryJournal journal;
+    private volatile MovementLedger ledger;
+    // set once the ledger has failed; history then stops, writes carry on
+    private volatile boolean ledgerFailed;
+
+    // Per-barcode write locks. Every mutation holds the stripes of the barcodes it
+    // touches, so writes to distinct SKUs do not wait on each other's locks and a
+    // rename is atomic with respect to other writers; multi-key operations lock
+    // stripes in index order. Writers still meet at shared points: the gate's read
+    // count, the journal's synchronized append and group fsync, the store's own
+    // locking (the columnar store has a single write lock) and, once anyone
+    // subscribes, the events queue. How far writes scale with cores past those has
+    // not been measured.
+    private final ReentrantLock[] stripes;
+
+    // Writers stamp every version with the current epoch under the gate's read side;
+    // snapshot() advances it under the write side, so a snapshot holds each mutation
+    // whole or not at all. The horizon is the newest open snapshot's epoch.
+    private volatile long epoch;
+    private volatile long horizon = ProductStore.NO_SNAPSHOT;
+    private final TreeMap<Long, Integer> openSnapshots = new TreeMap<>();
+
+    // package-private so benchmarks can build independent catalogs; the app uses getInstance
+    InventoryManager() {
+        this(defaultStore());
+    }
+
+    // -Dinventory.engine picks the engine; -Dinventory.cache=N puts an N-entry lookup cache in front
+    private static ProductStore defaultStore() {
+        ProductStore store = "columnar".equals(System.getProperty("inventory.engine")) ? new ColumnarProductStore() : new MapProductStore();
+        int cache = Integer.getInteger("inventory.cache", 0);
+        return cache > 0 ? new CachedProductStore(store, cache) : store;
+    }
+
+    InventoryManager(ProductStore store) {
+        products = store;
+        index = new SearchIndex(products::get);
+        int n = 64;
+        while (n < Runtime.getRuntime().availableProcessors() * 16) n <<= 1;
+        stripes = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) stripes[i] = new ReentrantLock();
     }
 
     public static InventoryManager getInstance() {
@@ -25,12 +83,250 @@ public class InventoryManager {
         return instance;
     }
 
+    /**
+     * Recovers the catalog from {@code dir} and journals every subsequent mutation there.
+     * A snapshot is taken on shutdown so the next start replays only a short tail.
+     * Stock movements are kept in the {@code movements} subdirectory.
+     */
+    public void openJournal(Path dir) throws IOException {
+        openJournal(dir, null);
+    }
+
+    /**
+     * Like openJournal above, reporting recovery to {@code progress} on the calling
+     * thread. Mutations wait until recovery is done, but reads do not: the store and
+     * getApproximateStats() fill in as products are recovered, while search and
+     * reorder alerts catch up only at the end.
+     */
+    public void openJournal(Path dir, InventoryJournal.Progress progress) throws IOException {
+        mutationGate.writeLock().lock();
+        try {
+            if (journal != null) throw new IllegalStateException("Journal already open");
+            aggregates.clear();
+            products.forEach(aggregates::add);
+            InventoryJournal j = InventoryJournal.open(dir, new CountingStore(products, aggregates), reorder.points(), SNAPSHOT_EVERY,
+                    this::requestCheckpoint, progress);
+            // the ledger maps files and starts a thread, so open it only once recovery has
+            // succeeded, and give the journal back if it cannot be opened
+            MovementLedger movements = new MovementLedger();
+            try {
+                movements.open(dir.resolve("movements"));
+            } catch (IOException | RuntimeException e) {
+                try {
+                    movements.close();
+                    j.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            journal = j;
+            ledger = movements;
+            ledgerFailed = false;
+            index.rebuild(products);
+            reorder.rebuild(products);
+        } finally {
+            mutationGate.writeLock().unlock();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeJournal, "inventory-journal-shutdown"));
+    }
+
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            InventoryJournal j = journal;
+            if (j == null) return;
+            long seq;
+            mutationGate.writeLock().lock();
+            try {
+                seq = j.rotate();
+            } finally {
+                mutationGate.writeLock().unlock();
+            }
+            j.writeSnapshot(seq, products, reorder.points());
+        }
+    }
+
+    public void closeJournal() {
+        InventoryJournal j = journal;
+        if (j == null) return;
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            System.err.println("Inventory snapshot failed: " + e.getMessage());
+        }
+        MovementLedger movements = ledger;
+        mutationGate.writeLock().lock();
+        try {
+            ledger = null;
+            journal = null;
+            j.close();
+        } catch (IOException e) {
+            System.err.println("Inventory journal close failed: " + e.getMessage());
+        } finally {
+            mutationGate.writeLock().unlock();
+        }
+        try {
+            if (movements != null) movements.close();
+        } catch (IOException e) {
+            System.err.println("Movement ledger close failed: " + e.getMessage());
+        }
+    }
+
+    private void requestCheckpoint() {
+        Thread t = new Thread(() -> {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                System.err.println("Inventory snapshot failed: " + e.getMessage());
+            }
+        }, "inventory-checkpoint");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private int stripeOf(String barcode) {
+        int h = barcode.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    private int[] lockStripes(Collection<String> barcodes) {
+        int[] ids = barcodes.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        for (int id : ids) lock(stripes[id]);
+        return ids;
+    }
+
+    private void lock(ReentrantLock stripe) {
+        if (!stripe.tryLock()) {
+            metrics.stripeContended();
+            stripe.lock();
+        }
+    }
+
+    private void enterGate() {
+        if (mutationGate.isWriteLocked()) metrics.gateWaited();
+        mutationGate.readLock().lock();
+    }
+
+    private void unlockStripes(int[] ids) {
+        for (int i = ids.length - 1; i >= 0; i--) stripes[ids[i]].unlock();
+    }
+
+    /**
+     * Records a movement, or a removal if {@code p} is null. History is best-effort:
+     * by now the write is journaled and applied, so a ledger failure is reported
+     * once and recording stops, rather than failing a write that has happened.
+     */
+    private void recordMovement(MovementLedger l, String barcode, long now, Product p) {
+        if (l == null || ledgerFailed) return;
+        try {
+            if (p == null) l.recordRemoval(barcode, now);
+            else l.record(barcode, now, p.getQuantity(), p.getPrice());
+        } catch (RuntimeException e) {
+            if (!ledgerFailed) {
+                ledgerFailed = true;
+                System.err.println("Movement ledger failed, history is no longer recorded: " + e);
+            }
+        }
+    }
+
+    private static void awaitDurable(InventoryJournal j, long seq) {
+        if (j != null && seq > 0) j.awaitDurable(seq);
+    }
+
     public void addProduct(Product product) {
         if (product == null) throw new IllegalArgumentException("Product cannot be null");
         String code = product.getBarcode();
         if (code == null || code.isEmpty()) throw new IllegalArgumentException("Product barcode required");
-        if (products.putIfAbsent(code, product) != null) {
-            throw new IllegalArgumentException("Product with barcode already exists: " + code);
+        product = product.freeze();
+        long started = metrics.start(InventoryMetrics.Op.ADD);
+        boolean failed = true;
+        try {
+            long seq = 0;
+            InventoryJournal j;
+            ReentrantLock stripe = stripes[stripeOf(code)];
+            enterGate();
+            lock(stripe);
+            try {
+                j = journal;
+                if (products.containsKey(code)) throw new IllegalArgumentException("Product with barcode already exists: " + code);
+                InventoryJournal.checkEncodable(product);
+                InventoryAggregates.Share share = InventoryAggregates.share(product);
+                if (j != null) seq = j.logAdd(product);
+                products.put(product, epoch, horizon);
+                aggregates.add(share);
+                recordMovement(ledger, code, System.currentTimeMillis(), product);
+                index.add(product);
+                reorder.update(product);
+                events.publish(InventoryEvent.Kind.ADDED, null, product);
+            } finally {
+                stripe.unlock();
+                mutationGate.readLock().unlock();
+            }
+            awaitDurable(j, seq);
+            failed = false;
+        } finally {
+            metrics.end(InventoryMetrics.Op.ADD, started, failed);
+        }
+    }
+
+    /**
+     * Checks what addProduct and addAll check of a product on its own, short of the
+     * barcode being free: present, counted into the totals, and journaled.
+     * Throws IllegalArgumentException otherwise.
+     */
+    static InventoryAggregates.Share checkAddable(Product p) {
+        if (p == null) throw new IllegalArgumentException("Product cannot be null");
+        if (p.getBarcode() == null || p.getBarcode().isEmpty()) throw new IllegalArgumentException("Product barcode required");
+        InventoryJournal.checkEncodable(p);
+        return InventoryAggregates.share(p);
+    }
+
+    /**
+     * Adds every product whose barcode is not already present and returns how many
+     * were added; the rest are skipped. The gate is taken and durability awaited once
+     * for the whole batch rather than per product. Every product is checked first, so
+     * one that cannot be added fails the call before any of the batch is.
+     */
+    public int addAll(Collection<Product> batch) {
+        List<InventoryAggregates.Share> shares = new ArrayList<>(batch.size());
+        for (Product p : batch) shares.add(checkAddable(p));
+        long started = metrics.start(InventoryMetrics.Op.ADD_ALL);
+        boolean failed = true;
+        try {
+            long seq = 0;
+            int added = 0;
+            InventoryJournal j;
+            enterGate();
+            try {
+                j = journal;
+                int i = 0;
+                for (Product original : batch) {
+                    InventoryAggregates.Share share = shares.get(i++);
+                    Product p = original.freeze();
+                    ReentrantLock stripe = stripes[stripeOf(p.getBarcode())];
+                    lock(stripe);
+                    try {
+                        if (products.containsKey(p.getBarcode())) continue;
+                        if (j != null) seq = j.logAdd(p);
+                        products.put(p, epoch, horizon);
+                        aggregates.add(share);
+                        recordMovement(ledger, p.getBarcode(), System.currentTimeMillis(), p);
+                        index.add(p);
+                        reorder.update(p);
+                        events.publish(InventoryEvent.Kind.ADDED, null, p);
+                        added++;
+                    } finally {
+                        stripe.unlock();
+                    }
+                }
+            } finally {
+                mutationGate.readLock().unlock();
+            }
+            awaitDurable(j, seq);
+            failed = false;
+            return added;
+        } finally {
+            metrics.end(InventoryMetrics.Op.ADD_ALL, started, failed);
         }
     }
 
@@ -39,62 +335,404 @@ public class InventoryManager {
         if (updated == null) throw new IllegalArgumentException("Updated product required");
         String newBarcode = updated.getBarcode();
         if (newBarcode == null || newBarcode.isEmpty()) throw new IllegalArgumentException("Product barcode required");
+        updated = updated.freeze();
 
-        synchronized (products) {
-            if (!products.containsKey(oldBarcode)) {
-                throw new IllegalArgumentException("No product with barcode: " + oldBarcode);
-            }
-            if (!oldBarcode.equals(newBarcode) && products.containsKey(newBarcode)) {
-                throw new IllegalArgumentException("Product with barcode already exists: " + newBarcode);
+        long started = metrics.start(InventoryMetrics.Op.UPDATE);
+        boolean failed = true;
+        try {
+            long seq = 0;
+            InventoryJournal j;
+            enterGate();
+            int[] held = lockStripes(Arrays.asList(oldBarcode, newBarcode));
+            try {
+                j = journal;
+                Product old = products.get(oldBarcode);
+                if (old == null) {
+                    throw new IllegalArgumentException("No product with barcode: " + oldBarcode);
+                }
+                if (!oldBarcode.equals(newBarcode) && products.containsKey(newBarcode)) {
+                    throw new IllegalArgumentException("Product with barcode already exists: " + newBarcode);
+                }
+                InventoryJournal.checkEncodable(updated);
+                InventoryAggregates.Share added = InventoryAggregates.share(updated);
+                InventoryAggregates.Share removed = InventoryAggregates.share(old);
+                if (j != null) seq = j.logUpdate(oldBarcode, updated);
+                // publish the new key before dropping the old one so a lookup racing a
+                // rename finds the product under at least one of its barcodes
+                products.put(updated, epoch, horizon);
+                if (!oldBarcode.equals(newBarcode)) products.remove(oldBarcode, epoch, horizon);
+                aggregates.add(added);
+                aggregates.remove(removed);
+                MovementLedger l = ledger;
+                long now = System.currentTimeMillis();
+                if (!oldBarcode.equals(newBarcode)) {
+                    index.remove(oldBarcode);
+                    recordMovement(l, oldBarcode, now, null);
+                    recordMovement(l, newBarcode, now, updated);
+                } else if (old.getQuantity() != updated.getQuantity() || old.getPrice().compareTo(updated.getPrice()) != 0) {
+                    recordMovement(l, newBarcode, now, updated);
+                }
+                index.add(updated);
+                if (oldBarcode.equals(newBarcode)) reorder.update(updated);
+                else reorder.rename(oldBarcode, updated);
+                events.publish(oldBarcode.equals(newBarcode) ? InventoryEvent.Kind.UPDATED : InventoryEvent.Kind.RENAMED, old, updated);
+            } finally {
+                unlockStripes(held);
+                mutationGate.readLock().unlock();
             }
-            products.remove(oldBarcode);
-            products.put(newBarcode, updated);
+            awaitDurable(j, seq);
+            failed = false;
+        } finally {
+            metrics.end(InventoryMetrics.Op.UPDATE, started, failed);
         }
     }
 
     public void deleteProduct(String barcode) {
         if (barcode == null) return;
-        products.remove(barcode);
+        long started = metrics.start(InventoryMetrics.Op.DELETE);
+        boolean failed = true;
+        try {
+            long seq = 0;
+            InventoryJournal j;
+            ReentrantLock stripe = stripes[stripeOf(barcode)];
+            enterGate();
+            lock(stripe);
+            try {
+                j = journal;
+                Product existing = products.get(barcode);
+                if (existing != null) {
+                    InventoryAggregates.Share share = InventoryAggregates.share(existing);
+                    if (j != null) seq = j.logDelete(barcode);
+                    products.remove(barcode, epoch, horizon);
+                    aggregates.remove(share);
+                    recordMovement(ledger, barcode, System.currentTimeMillis(), null);
+                    index.remove(barcode);
+                    reorder.remove(barcode);
+                    events.publish(InventoryEvent.Kind.DELETED, existing, null);
+                }
+            } finally {
+                stripe.unlock();
+                mutationGate.readLock().unlock();
+            }
+            awaitDurable(j, seq);
+            failed = false;
+        } finally {
+            metrics.end(InventoryMetrics.Op.DELETE, started, failed);
+        }
+    }
+
+    /**
+     * Applies every line of {@code tx} or none of them. Each affected product is
+     * replaced by a copy whose quantity went through Product.setQuantity; if any
+     * line fails that check or names an unknown barcode, nothing is changed and an
+     * IllegalArgumentException is thrown. Returns the resulting products.
+     */
+    public List<Product> applyTransaction(StockTransaction tx) {
+        if (tx == null) throw new IllegalArgumentException("Transaction required");
+        if (tx.isEmpty()) return new ArrayList<>();
+        long started = metrics.start(InventoryMetrics.Op.TRANSACTION);
+        boolean failed = true;
+        try {
+            long seq = 0;
+            InventoryJournal j;
+            Map<String, Product> next = new LinkedHashMap<>();
+            enterGate();
+            int[] held = lockStripes(tx.getBarcodes());
+            try {
+                j = journal;
+                for (StockTransaction.Line line : tx.getLines()) {
+                    Product current = next.containsKey(line.getBarcode()) ? next.get(line.getBarcode()) : products.get(line.getBarcode());
+                    if (current == null) throw new IllegalArgumentException("No product with barcode: " + line.getBarcode());
+                    Product copy;
+                    try {
+                        copy = new Product(current.getBarcode(), current.getName(), current.getQuantity() + line.getDelta(),
+                                current.getUnit(), current.getPrice(), true);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Transaction rejected at " + line.getBarcode() + ": " + e.getMessage(), e);
+                    }
+                    next.put(line.getBarcode(), copy);
+                }
+                Map<String, Product> before = new LinkedHashMap<>();
+                for (Product p : next.values()) before.put(p.getBarcode(), products.get(p.getBarcode()));
+                // every share is checked before the journal or store sees any line
+                List<InventoryAggregates.Share> added = new ArrayList<>(next.size());
+                List<InventoryAggregates.Share> removed = new ArrayList<>(next.size());
+                for (Product p : next.values()) {
+                    try {
+                        added.add(InventoryAggregates.share(p));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Transaction rejected at " + p.getBarcode() + ": " + e.getMessage(), e);
+                    }
+                    removed.add(InventoryAggregates.share(before.get(p.getBarcode())));
+                }
+                if (j != null) seq = j.logStock(next.values());
+                for (Product p : next.values()) products.put(p, epoch, horizon);
+                for (int i = 0; i < added.size(); i++) {
+                    aggregates.add(added.get(i));
+                    aggregates.remove(removed.get(i));
+                }
+                MovementLedger l = ledger;
+                long now = System.currentTimeMillis();
+                for (Product p : next.values()) {
+                    recordMovement(l, p.getBarcode(), now, p);
+                    index.add(p);
+                    reorder.update(p);
+                    events.publish(InventoryEvent.Kind.UPDATED, before.get(p.getBarcode()), p);
+                }
+            } finally {
+                unlockStripes(held);
+                mutationGate.readLock().unlock();
+            }
+            awaitDurable(j, seq);
+            failed = false;
+            return new ArrayList<>(next.values());
+        } finally {
+            metrics.end(InventoryMetrics.Op.TRANSACTION, started, failed);
+        }
+    }
+
+    /**
+     * Sets the quantity below which {@code barcode} is reported as low stock;
+     * {@code null} reverts it to ReorderPoints.DEFAULT_REORDER_POINT.
+     */
+    public void setReorderPoint(String barcode, Double point) {
+        if (barcode == null || barcode.isEmpty()) throw new IllegalArgumentException("Product barcode required");
+        if (point != null && (point.isNaN() || point.isInfinite() || point < 0)) {
+            throw new IllegalArgumentException("Reorder point must be a non-negative number");
+        }
+        long started = metrics.start(InventoryMetrics.Op.REORDER);
+        boolean failed = true;
+        try {
+            long seq = 0;
+            InventoryJournal j;
+            ReentrantLock stripe = stripes[stripeOf(barcode)];
+            enterGate();
+            lock(stripe);
+            try {
+                j = journal;
+                Product p = products.get(barcode);
+                if (p == null) throw new IllegalArgumentException("No product with barcode: " + barcode);
+                if (j != null) seq = j.logReorder(barcode, point);
+                if (point == null) reorder.clearPoint(p);
+                else reorder.setPoint(p, point);
+            } finally {
+                stripe.unlock();
+                mutationGate.readLock().unlock();
+            }
+            awaitDurable(j, seq);
+            failed = false;
+        } finally {
+            metrics.end(InventoryMetrics.Op.REORDER, started, failed);
+        }
+    }
+
+    public double getReorderPoint(String barcode) {
+        return reorder.getReorderPoint(barcode);
+    }
+
+    /** The reorder point set for {@code barcode}, or null if it uses the default. */
+    public Double getExplicitReorderPoint(String barcode) {
+        return barcode == null ? null : reorder.points().get(barcode);
+    }
+
+    /** Reads the flag precomputed on the last change to the product or its reorder point. */
+    public boolean isBelowReorderPoint(String barcode) {
+        return reorder.isBelow(barcode);
+    }
+
+    /** Products below their reorder point, furthest below first; O(k) in the result size. */
+    public List<Product> getProductsBelowReorderPoint() {
+        List<Product> out = new ArrayList<>();
+        for (String barcode : reorder.belowBarcodes()) {
+            Product p = products.get(barcode);
+            if (p != null) out.add(p);
+        }
+        return out;
+    }
+
+    public void addReorderListener(ReorderPoints.Listener listener) {
+        reorder.addListener(listener);
+    }
+
+    public void removeReorderListener(ReorderPoints.Listener listener) {
+        reorder.removeListener(listener);
     }
 
     public Product getProductByBarcode(String barcode) {
         if (barcode == null) return null;
-        return products.get(barcode);
+        long started = metrics.start(InventoryMetrics.Op.LOOKUP);
+        Product p = products.get(barcode);
+        metrics.end(InventoryMetrics.Op.LOOKUP, started);
+        return p;
     }
 
     public boolean containsBarcode(String barcode) {
-        return barcode != null && products.containsKey(barcode);
+        if (barcode == null) return false;
+        long started = metrics.start(InventoryMetrics.Op.CONTAINS);
+        boolean found = products.containsKey(barcode);
+        metrics.end(InventoryMetrics.Op.CONTAINS, started);
+        return found;
     }
 
+    /** A fresh list, weakly consistent with writers; snapshot() gives a consistent view. */
     public List<Product> getAllProducts() {
-        return new ArrayList<>(products.values());
+        long started = metrics.start(InventoryMetrics.Op.LIST);
+        List<Product> all = products.values();
+        metrics.end(InventoryMetrics.Op.LIST, started);
+        return all;
+    }
+
+    /** Streams every product without building a list; weakly consistent with writers. */
+    public void forEachProduct(Consumer<Product> action) {
+        products.forEach(action);
     }
 
     public List<Product> search(String query) {
-        List<Product> results = new ArrayList<>();
+        return search(query, 0);
+    }
+
+    /**
+     * Case-insensitive substring search over barcode and name, ranked exact barcode,
+     * barcode prefix, name prefix, then other matches. {@code limit <= 0} returns all.
+     */
+    public List<Product> search(String query, int limit) {
         if (query == null || query.trim().isEmpty()) {
-            results.addAll(getAllProducts());
-            return results;
-        }
-        String q = query.trim().toLowerCase();
-        for (Product p : products.values()) {
-            if ((p.getBarcode() != null && p.getBarcode().toLowerCase().contains(q)) ||
-                (p.getName() != null && p.getName().toLowerCase().contains(q))) {
-                results.add(p);
-            }
+            List<Product> all = getAllProducts();
+            return limit > 0 && all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
         }
-        return results;
+        long started = metrics.start(InventoryMetrics.Op.SEARCH);
+        List<Product> found = index.search(query, limit);
+        metrics.end(InventoryMetrics.Op.SEARCH, started);
+        return found;
+    }
+
+    /**
+     * Committed changes, in batches, from the moment of subscription on. Subscribers
+     * that fall behind get larger batches. Writers never wait for subscribers: when
+     * the events queue overflows, the changes in it are dropped and replaced by one
+     * RESYNC event, after which a subscriber must reload what it shows (for example
+     * from snapshot()) and carry on applying the events that follow.
+     *
+     * All subscribers share one dispatcher, which waits while any subscriber's buffer
+     * is full. A subscriber that stops requesting therefore stalls delivery to every
+     * other subscriber too, until the queue overflows into a RESYNC for all of them.
+     */
+    public Flow.Publisher<List<InventoryEvent>> events() {
+        return events;
     }
 
     public BigDecimal getTotalInventoryValue() {
-        BigDecimal total = BigDecimal.ZERO;
-        for (Product p : products.values()) {
-            try {
-                total = total.add(p.getTotalValue());
-            } catch (Exception e) {
-                // ignore malformed product values
+        long started = metrics.start(InventoryMetrics.Op.TOTAL);
+        BigDecimal total = aggregates.totalValue();
+        metrics.end(InventoryMetrics.Op.TOTAL, started);
+        return total;
+    }
+
+    /**
+     * Total value, SKU count, low-stock count and units per unit type, read consistently.
+     * Writers are held off while it reads; anything polled should use getApproximateStats().
+     */
+    public InventoryAggregates.Snapshot getStats() {
+        long started = metrics.start(InventoryMetrics.Op.STATS);
+        mutationGate.writeLock().lock();
+        try {
+            return aggregates.snapshot(reorder.belowCount());
+        } finally {
+            mutationGate.writeLock().unlock();
+            metrics.end(InventoryMetrics.Op.STATS, started);
+        }
+    }
+
+    /**
+     * Totals read without waiting for in-flight mutations, so they may be off by one
+     * in progress; unlike getStats() this also answers while a journal is recovering.
+     */
+    public InventoryAggregates.Snapshot getApproximateStats() {
+        return aggregates.snapshot(reorder.belowCount());
+    }
+
+    /**
+     * Opens a consistent, read-only view of the catalog as it is now. Opening waits
+     * for in-flight mutations, as getStats() does; after that neither side waits on
+     * the other. Close the snapshot when done with it.
+     */
+    public InventorySnapshot snapshot() {
+        long started = metrics.start(InventoryMetrics.Op.SNAPSHOT);
+        mutationGate.writeLock().lock();
+        try {
+            long at;
+            // advanced and registered together, so a concurrent release never prunes past it
+            synchronized (openSnapshots) {
+                at = epoch;
+                epoch = at + 1;
+                openSnapshots.merge(at, 1, Integer::sum);
+                horizon = at;
             }
+            return new InventorySnapshot(products, at, aggregates.snapshot(reorder.belowCount()), this::releaseSnapshot);
+        } finally {
+            mutationGate.writeLock().unlock();
+            metrics.end(InventoryMetrics.Op.SNAPSHOT, started);
+        }
+    }
+
+    private void releaseSnapshot(long at) {
+        long oldest;
+        synchronized (openSnapshots) {
+            openSnapshots.computeIfPresent(at, (k, n) -> n == 1 ? null : n - 1);
+            horizon = openSnapshots.isEmpty() ? ProductStore.NO_SNAPSHOT : openSnapshots.lastKey();
+            // with none open, bound by the epoch so a snapshot opened meanwhile keeps its versions
+            oldest = openSnapshots.isEmpty() ? epoch : openSnapshots.firstKey();
         }
-        return total.setScale(2, RoundingMode.HALF_UP);
+        products.prune(oldest);
+    }
+
+    /** Every quantity and price change, kept in the journal directory; null while no journal is open. */
+    public MovementLedger getMovements() {
+        return ledger;
+    }
+
+    /** Operation latencies and lock contention since start (or since an operation's reset). */
+    public InventoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Publishes getMetrics() and catalog gauges as platform MXBeans under the "inventory" domain. */
+    public void registerMBeans() {
+        metrics.register("inventory", products::size, reorder::belowCount, aggregates::totalValue, products::getReadRetries,
+                products instanceof CacheMetricsMXBean ? (CacheMetricsMXBean) products : null);
+    }
+
+    // Recovery writes through this, so the aggregates grow with the catalog instead of
+    // being summed in a second pass at the end
+    private static final class CountingStore implements ProductStore {
+        private final ProductStore store;
+        private final InventoryAggregates aggregates;
+
+        CountingStore(ProductStore store, InventoryAggregates aggregates) {
+            this.store = store;
+            this.aggregates = aggregates;
+        }
+
+        @Override public void put(Product product, long stamp, long horizon) {
+            Product old = store.get(product.getBarcode());
+            store.put(product, stamp, horizon);
+            if (old != null) aggregates.remove(old);
+            aggregates.add(product);
+        }
+
+        @Override public Product remove(String barcode, long stamp, long horizon) {
+            Product old = store.remove(barcode, stamp, horizon);
+            if (old != null) aggregates.remove(old);
+            return old;
+        }
+
+        @Override public Product get(String barcode) { return store.get(barcode); }
+        @Override public boolean containsKey(String barcode) { return store.containsKey(barcode); }
+        @Override public Product get(String barcode, long epoch) { return store.get(barcode, epoch); }
+        @Override public void forEach(long epoch, Consumer<Product> action) { store.forEach(epoch, action); }
+        @Override public void prune(long oldest) { store.prune(oldest); }
+        @Override public int size() { return store.size(); }
+        @Override public void forEach(Consumer<Product> action) { store.forEach(action); }
+        @Override public List<Product> values() { return store.values(); }
     }
 }
\ No newline at end of file
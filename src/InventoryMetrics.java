@@ -0,0 +1,247 @@
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Per-operation counters and latency histograms for an InventoryManager, plus the
+ * contention counters its locks feed. Operations whose whole cost is a hash lookup
+ * are sampled instead: a daemon thread arms each of them once per millisecond and
+ * only the call that disarms it is timed, so an unsampled lookup pays one load and
+ * a branch. Anything that writes per call, even a counter, costs several percent
+ * of a lookup, so their counts are samples taken rather than calls made. The thread
+ * runs only while someone is looking: it starts when the statistics are read (by
+ * an MXBean client or through get()) or a JFR recording starts, and stops once
+ * nothing has read them for a minute and no recording takes our events, so samples
+ * cover only those periods. Disable all recording with -Dinventory.metrics=false.
+ */
+public class InventoryMetrics {
+
+    static final boolean ENABLED = !"false".equals(System.getProperty("inventory.metrics"));
+    static final long SAMPLE_INTERVAL_NANOS = 1_000_000;
+    private static final long SAMPLER_IDLE_NANOS = 60_000_000_000L;
+
+    /** Sentinel returned by start() for calls that are not timed. */
+    private static final long SKIPPED = Long.MIN_VALUE;
+
+    // one bit per sampled Op, set by the sampler and cleared by the call that takes the sample
+    private static final AtomicInteger armed = new AtomicInteger();
+    private static final AtomicBoolean sampling = new AtomicBoolean();
+    private static volatile long lastDemand;
+
+    public enum Op {
+        ADD("addProduct", false),
+        ADD_ALL("addAll", false),
+        UPDATE("updateProduct", false),
+        DELETE("deleteProduct", false),
+        TRANSACTION("applyTransaction", false),
+        REORDER("setReorderPoint", false),
+        LOOKUP("getProductByBarcode", true),
+        CONTAINS("containsBarcode", true),
+        LIST("getAllProducts", false),
+        SEARCH("search", false),
+        TOTAL("getTotalInventoryValue", true),
+        STATS("getStats", false),
+        SNAPSHOT("snapshot", false);
+
+        private final String label;
+        private final boolean sampled;
+        private final int bit = 1 << ordinal();
+
+        Op(String label, boolean sampled) {
+            this.label = label;
+            this.sampled = sampled;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Map<Op, OperationStats> ops = new EnumMap<>(Op.class);
+    private final OperationStats[] byOrdinal = new OperationStats[Op.values().length];
+    private final LongAdder stripeContention = new LongAdder();
+    private final LongAdder gateWaits = new LongAdder();
+
+    static {
+        if (ENABLED) {
+            try {
+                FlightRecorder.addListener(new FlightRecorderListener() {
+                    @Override public void recorderInitialized(FlightRecorder recorder) {
+                        if (recorder.getRecordings().stream().anyMatch(r -> r.getState() == RecordingState.RUNNING)) demand();
+                    }
+                    @Override public void recordingStateChanged(Recording recording) {
+                        if (recording.getState() == RecordingState.RUNNING) demand();
+                    }
+                });
+            } catch (SecurityException e) {
+                // no JFR access; reads still start the sampler
+            }
+        }
+    }
+
+    // Keeps the sampler running for a while; starts it if it had stopped
+    private static void demand() {
+        if (!ENABLED) return;
+        lastDemand = System.nanoTime();
+        if (sampling.get() || !sampling.compareAndSet(false, true)) return;
+        Thread t = new Thread(InventoryMetrics::sample, "inventory-metrics-sampler");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void sample() {
+        int mask = 0;
+        for (Op op : Op.values()) if (op.sampled) mask |= op.bit;
+        while (true) {
+            LockSupport.parkNanos(SAMPLE_INTERVAL_NANOS);
+            if (armed.get() != mask) armed.set(mask);
+            if (System.nanoTime() - lastDemand < SAMPLER_IDLE_NANOS) continue;
+            if (new InventoryOperationEvent().isEnabled()) {
+                lastDemand = System.nanoTime();
+                continue;
+            }
+            sampling.set(false);
+            // a demand() that saw the flag still set just before it was cleared is picked up here
+            if (System.nanoTime() - lastDemand >= SAMPLER_IDLE_NANOS || !sampling.compareAndSet(false, true)) return;
+        }
+    }
+
+    public InventoryMetrics() {
+        for (Op op : Op.values()) {
+            OperationStats s = new OperationStats(op);
+            ops.put(op, s);
+            byOrdinal[op.ordinal()] = s;
+        }
+    }
+
+    long start(Op op) {
+        if (!ENABLED) return SKIPPED;
+        if (op.sampled && ((armed.getOpaque() & op.bit) == 0 || (armed.getAndAccumulate(~op.bit, (a, b) -> a & b) & op.bit) == 0)) {
+            return SKIPPED;
+        }
+        return System.nanoTime();
+    }
+
+    void end(Op op, long started) {
+        end(op, started, false);
+    }
+
+    void end(Op op, long started, boolean failed) {
+        if (started != SKIPPED) record(op, started, failed);
+    }
+
+    // kept out of end() so the untimed path stays small enough to inline
+    private void record(Op op, long started, boolean failed) {
+        long nanos = System.nanoTime() - started;
+        OperationStats s = byOrdinal[op.ordinal()];
+        s.latency.record(nanos);
+        if (failed) s.errors.increment();
+        InventoryOperationEvent e = new InventoryOperationEvent();
+        if (e.isEnabled()) {
+            e.operation = op.label;
+            e.latency = nanos;
+            e.failed = failed;
+            e.commit();
+        }
+    }
+
+    void stripeContended() {
+        stripeContention.increment();
+    }
+
+    void gateWaited() {
+        gateWaits.increment();
+    }
+
+    public OperationStats get(Op op) {
+        demand();
+        return ops.get(op);
+    }
+
+    public long getStripeContention() {
+        return stripeContention.sum();
+    }
+
+    public long getGateWaits() {
+        return gateWaits.sum();
+    }
+
+    /**
+     * Registers one MXBean per operation under {@code domain:type=Operation,name=...},
+     * the catalog gauges under {@code domain:type=Catalog} and, if given, the lookup
+     * cache under {@code domain:type=Cache}.
+     */
+    void register(String domain, LongSupplier skuCount, LongSupplier lowStock, Supplier<BigDecimal> totalValue, LongSupplier readRetries,
+                  CacheMetricsMXBean cache) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (OperationStats s : ops.values()) {
+                server.registerMBean(s, new ObjectName(domain + ":type=Operation,name=" + s.op.label));
+            }
+            server.registerMBean(new CatalogMetricsMXBean() {
+                public long getSkuCount() { return skuCount.getAsLong(); }
+                public long getLowStockCount() { return lowStock.getAsLong(); }
+                public String getTotalValue() { return totalValue.get().toPlainString(); }
+                public long getHeapUsedBytes() { return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(); }
+                public long getStripeContention() { return InventoryMetrics.this.getStripeContention(); }
+                public long getGateWaits() { return InventoryMetrics.this.getGateWaits(); }
+                public long getReadRetries() { return readRetries.getAsLong(); }
+            }, new ObjectName(domain + ":type=Catalog"));
+            if (cache != null) server.registerMBean(cache, new ObjectName(domain + ":type=Cache"));
+        } catch (JMException e) {
+            System.err.println("Inventory metrics not registered: " + e.getMessage());
+        }
+    }
+
+    public static final class OperationStats implements OperationMetricsMXBean {
+
+        private final Op op;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        private OperationStats(Op op) {
+            this.op = op;
+        }
+
+        public long getCount() { return getLatency().getCount(); }
+        public long getErrors() { return errors.sum(); }
+        public boolean isSampled() { return op.sampled; }
+        public double getMeanMicros() { return getLatency().getMean() / 1000.0; }
+        public double getP50Micros() { return getLatency().percentile(0.50) / 1000.0; }
+        public double getP90Micros() { return getLatency().percentile(0.90) / 1000.0; }
+        public double getP99Micros() { return getLatency().percentile(0.99) / 1000.0; }
+        public double getP999Micros() { return getLatency().percentile(0.999) / 1000.0; }
+        public double getMaxMicros() { return getLatency().getMax() / 1000.0; }
+
+        // every read goes through here, so a polling MXBean client keeps the sampler running
+        public LatencyHistogram getLatency() {
+            demand();
+            return latency;
+        }
+
+        public void reset() {
+            latency.reset();
+            errors.reset();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s count=%d errors=%d p50=%.1fus p99=%.1fus max=%.1fus",
+                    op.label, getCount(), getErrors(), getP50Micros(), getP99Micros(), getMaxMicros());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one timed InventoryManager operation, emitted while a flight
+ * recording is running; sampled operations emit only for the calls sampled.
+ */
+@Name("inventory.Operation")
+@Label("Inventory Operation")
+@Category("Inventory")
+@Description("Latency of an InventoryManager operation")
+@StackTrace(false)
+public class InventoryOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Failed")
+    boolean failed;
+}
\ No newline at end of file
@@ -0,0 +1,291 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Group-by reports over a catalog snapshot, evaluated in parallel. Each query splits
+ * the snapshot's spliterator into fork-join tasks, every task folds its share of the
+ * products into a private accumulator, and accumulators are merged as the tasks
+ * join, so threads never share a counter. Value is summed in long cents and units in
+ * thousandths (the scales InventoryAggregates uses), so results are exact and do not
+ * depend on how the scan was split; a sum that overflows a long throws
+ * ArithmeticException.
+ *
+ * Reading from a snapshot keeps every report consistent with one point in time while
+ * writers carry on:
+ *
+ *     try (InventorySnapshot s = manager.snapshot()) {
+ *         Map<String, InventoryReports.Group> byUnit = reports.valueByUnit(s);
+ *     }
+ */
+public class InventoryReports {
+
+    private static final int UNIT_SCALE = 3;
+    private static final long MIN_SPLIT = 4096;
+
+    private final ForkJoinPool pool;
+
+    /** Runs reports on the common fork-join pool. */
+    public InventoryReports() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public InventoryReports(ForkJoinPool pool) {
+        if (pool == null) throw new IllegalArgumentException("Fork-join pool required");
+        this.pool = pool;
+    }
+
+    /** SKU count, units and value of one group. */
+    public static final class Group {
+        private final long skus;
+        private final long units;
+        private final long cents;
+
+        Group(long skus, long units, long cents) {
+            this.skus = skus;
+            this.units = units;
+            this.cents = cents;
+        }
+
+        public long getSkuCount() { return skus; }
+        public BigDecimal getUnits() { return BigDecimal.valueOf(units, UNIT_SCALE); }
+        public BigDecimal getValue() { return BigDecimal.valueOf(cents, 2); }
+    }
+
+    /** A range of a histogram: {@code lower <= x < upper}, where a null upper bound is open. */
+    public static final class Band {
+        private final BigDecimal lower;
+        private final BigDecimal upper;
+        private final Group group;
+
+        Band(BigDecimal lower, BigDecimal upper, Group group) {
+            this.lower = lower;
+            this.upper = upper;
+            this.group = group;
+        }
+
+        public BigDecimal getLower() { return lower; }
+        public BigDecimal getUpper() { return upper; }
+        public long getSkuCount() { return group.getSkuCount(); }
+        public BigDecimal getUnits() { return group.getUnits(); }
+        public BigDecimal getValue() { return group.getValue(); }
+
+        @Override
+        public String toString() {
+            return "[" + lower.toPlainString() + ", " + (upper == null ? "inf" : upper.toPlainString()) + ")";
+        }
+    }
+
+    /** Units and value per unit of measure, sorted by unit. */
+    public Map<String, Group> valueByUnit(InventorySnapshot snapshot) {
+        Map<String, long[]> totals = scan(snapshot, HashMap::new, (acc, p) -> {
+            long[] t = acc.computeIfAbsent(p.getUnit(), k -> new long[3]);
+            add(t, 0, p);
+        }, (a, b) -> {
+            b.forEach((unit, t) -> a.merge(unit, t, (x, y) -> {
+                for (int i = 0; i < 3; i++) x[i] = Math.addExact(x[i], y[i]);
+                return x;
+            }));
+            return a;
+        });
+        Map<String, Group> out = new TreeMap<>();
+        totals.forEach((unit, t) -> out.put(unit, new Group(t[0], t[1], t[2])));
+        return out;
+    }
+
+    /**
+     * The {@code n} products with the highest stock value, highest first; ties go to
+     * the lower barcode so the answer does not depend on scan order.
+     */
+    public List<Product> topByValue(InventorySnapshot snapshot, int n) {
+        if (n < 0) throw new IllegalArgumentException("Result size cannot be negative");
+        if (n == 0) return new ArrayList<>();
+        // each task keeps a min-heap of its n best, so the weakest is evicted first
+        Comparator<Ranked> order = Comparator.<Ranked>comparingLong(r -> r.cents)
+                .thenComparing(r -> r.product.getBarcode(), Comparator.reverseOrder());
+        PriorityQueue<Ranked> best = scan(snapshot, () -> new PriorityQueue<>(order), (heap, p) -> {
+            Ranked r = new Ranked(p, valueCents(p));
+            if (heap.size() < n) heap.add(r);
+            else if (order.compare(r, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(r);
+            }
+        }, (a, b) -> {
+            for (Ranked r : b) {
+                if (a.size() < n) a.add(r);
+                else if (order.compare(r, a.peek()) > 0) {
+                    a.poll();
+                    a.add(r);
+                }
+            }
+            return a;
+        });
+        List<Ranked> ranked = new ArrayList<>(best);
+        ranked.sort(order.reversed());
+        List<Product> out = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) out.add(r.product);
+        return out;
+    }
+
+    /** Products bucketed by quantity at ascending {@code bounds}: below the first, between each pair, then at or above the last. */
+    public List<Band> quantityHistogram(InventorySnapshot snapshot, double... bounds) {
+        BigDecimal[] edges = new BigDecimal[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            if (Double.isNaN(bounds[i]) || Double.isInfinite(bounds[i])) throw new IllegalArgumentException("Bounds must be finite numbers");
+            edges[i] = BigDecimal.valueOf(bounds[i]);
+        }
+        return bands(snapshot, edges, p -> bucket(bounds, p.getQuantity()));
+    }
+
+    /** Products bucketed by unit price at ascending {@code bounds}, like quantityHistogram. */
+    public List<Band> priceBands(InventorySnapshot snapshot, BigDecimal... bounds) {
+        long[] cents = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            if (bounds[i] == null) throw new IllegalArgumentException("Bounds must not be null");
+            cents[i] = bounds[i].setScale(2, RoundingMode.CEILING).unscaledValue().longValueExact();
+        }
+        return bands(snapshot, bounds.clone(), p -> bucket(cents, p.getPrice().scaleByPowerOfTen(2).longValueExact()));
+    }
+
+    private List<Band> bands(InventorySnapshot snapshot, BigDecimal[] bounds, ToIntFunction<Product> bucketer) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i].compareTo(bounds[i - 1]) <= 0) throw new IllegalArgumentException("Bounds must be strictly ascending");
+        }
+        int groups = bounds.length + 1;
+        long[] totals = scan(snapshot, () -> new long[groups * 3], (acc, p) -> add(acc, bucketer.applyAsInt(p) * 3, p), (a, b) -> {
+            for (int i = 0; i < a.length; i++) a[i] = Math.addExact(a[i], b[i]);
+            return a;
+        });
+        List<Band> out = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            BigDecimal lower = g == 0 ? BigDecimal.ZERO : bounds[g - 1];
+            BigDecimal upper = g == bounds.length ? null : bounds[g];
+            out.add(new Band(lower, upper, new Group(totals[g * 3], totals[g * 3 + 1], totals[g * 3 + 2])));
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    private static int bucket(double[] bounds, double x) {
+        int lo = 0;
+        int hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x >= bounds[mid]) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int bucket(long[] bounds, long x) {
+        int lo = 0;
+        int hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x >= bounds[mid]) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void add(long[] acc, int at, Product p) {
+        acc[at]++;
+        acc[at + 1] = Math.addExact(acc[at + 1], units(p.getQuantity()));
+        acc[at + 2] = Math.addExact(acc[at + 2], valueCents(p));
+    }
+
+    // A quantity with at most three decimals, the common case, is a whole number of
+    // thousandths that BigDecimal.valueOf spells out exactly, so its value rounds in
+    // long arithmetic; anything else, or an overflow, goes the way of
+    // Product.getTotalValue.
+    static long valueCents(Product p) {
+        long price = p.getPrice().scaleByPowerOfTen(2).longValueExact();
+        long millis = millis(p.getQuantity());
+        if (millis >= 0) {
+            try {
+                return Math.addExact(Math.multiplyExact(price, millis), 500) / 1000;
+            } catch (ArithmeticException e) {
+                // too large for a long; fall back to BigDecimal
+            }
+        }
+        return p.getTotalValue().unscaledValue().longValueExact();
+    }
+
+    private static long units(double q) {
+        long millis = millis(q);
+        if (millis >= 0) return millis;
+        return BigDecimal.valueOf(q).setScale(UNIT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // the quantity in thousandths, or -1 if it has more decimals or is too large to be sure
+    private static long millis(double q) {
+        if (!(q >= 0 && q < 1e12)) return -1;
+        long millis = Math.round(q * 1000);
+        return millis / 1000.0 == q ? millis : -1;
+    }
+
+    private <A> A scan(InventorySnapshot snapshot, Supplier<A> create, BiConsumer<A, Product> fold, BinaryOperator<A> merge) {
+        Spliterator<Product> all = snapshot.spliterator();
+        long threshold = Math.max(MIN_SPLIT, all.estimateSize() / (pool.getParallelism() * 8L));
+        return pool.invoke(new ScanTask<>(all, threshold, create, fold, merge));
+    }
+
+    private static final class Ranked {
+        final Product product;
+        final long cents;
+
+        Ranked(Product product, long cents) {
+            this.product = product;
+            this.cents = cents;
+        }
+    }
+
+    // Forks off halves until a piece is below the threshold, folds what is left, then
+    // merges in the forked halves as they finish.
+    private static final class ScanTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<Product> products;
+        private final long threshold;
+        private final Supplier<A> create;
+        private final BiConsumer<A, Product> fold;
+        private final BinaryOperator<A> merge;
+
+        ScanTask(Spliterator<Product> products, long threshold, Supplier<A> create, BiConsumer<A, Product> fold, BinaryOperator<A> merge) {
+            this.products = products;
+            this.threshold = threshold;
+            this.create = create;
+            this.fold = fold;
+            this.merge = merge;
+        }
+
+        @Override
+        protected A compute() {
+            List<ScanTask<A>> forked = new ArrayList<>();
+            Spliterator<Product> half;
+            while (products.estimateSize() > threshold && (half = products.trySplit()) != null) {
+                ScanTask<A> task = new ScanTask<>(half, threshold, create, fold, merge);
+                task.fork();
+                forked.add(task);
+            }
+            A acc = create.get();
+            products.forEachRemaining(p -> fold.accept(acc, p));
+            A result = acc;
+            for (int i = forked.size() - 1; i >= 0; i--) result = merge.apply(result, forked.get(i).join());
+            return result;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,485 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless HTTP/JSON front end for InventoryManager on the JDK's HttpServer.
+ * Exchanges run on a fixed pool of platform threads; handlers block on the
+ * manager and the journal's group commit.
+ *
+ *   GET    /products/{barcode}                product, or 404
+ *   GET    /products[?q=text&limit=n]         search, or the whole catalog; streamed
+ *   POST   /products                          add a product
+ *   PUT    /products/{barcode}                replace (and possibly rename) a product
+ *   DELETE /products/{barcode}                delete
+ *   GET    /products/{barcode}/reorder-point  {"reorderPoint": n}, or 404
+ *   PUT    /products/{barcode}/reorder-point  {"reorderPoint": n or null}
+ *   POST   /stock                             {"lines":[{"kind":"receive|pick|adjust","barcode":..,"quantity":n}]}, atomic
+ *   POST   /batch                             NDJSON requests in, NDJSON results out in the same order
+ *   GET    /low-stock                         products below their reorder point; streamed
+ *   GET    /stats                             totals, read without stopping writers
+ *
+ * Malformed requests get 400, requests the manager rejects (duplicate barcode,
+ * negative stock, unknown product in a write) get 409. Errors are {"error": message}.
+ */
+public class InventoryServer {
+
+    private static final int MAX_BODY = 16 << 20;
+    private static final int STREAM_BUFFER = 1 << 16;
+
+    static {
+        // HttpServer leaves Nagle on by default, which with delayed ACKs stalls small
+        // keep-alive responses for tens of milliseconds; it reads this once, at first use
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final InventoryManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public InventoryServer(InventoryManager manager, InetSocketAddress address, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("At least one server thread required");
+        this.manager = manager;
+        AtomicInteger n = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "inventory-http-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server = HttpServer.create(address, 4096);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stops accepting requests and waits up to {@code delaySeconds} for running ones. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Thrown for requests that are malformed, as opposed to ones the manager rejects
+    private static final class BadRequest extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        BadRequest(String message) { super(message); }
+    }
+
+    // A status with either a JSON body, an error message, or neither (204)
+    private static final class Reply {
+        final int status;
+        final String body;
+        final String error;
+        Reply(int status, String body, String error) {
+            this.status = status;
+            this.body = body;
+            this.error = error;
+        }
+        Reply(int status, String body) {
+            this(status, body, null);
+        }
+    }
+
+    private void handle(HttpExchange ex) {
+        try {
+            String method = ex.getRequestMethod();
+            String path = ex.getRequestURI().getRawPath();
+            Map<String, String> query = query(ex.getRequestURI().getRawQuery());
+            // streaming endpoints write their own response
+            if (method.equals("GET") && path.equals("/products")) {
+                String q = query.get("q");
+                int limit = intParam(query, "limit", 0);
+                if (q == null || q.trim().isEmpty()) streamAll(ex, limit);
+                else streamList(ex, manager.search(q, limit));
+                return;
+            }
+            if (method.equals("GET") && path.equals("/low-stock")) {
+                streamList(ex, manager.getProductsBelowReorderPoint());
+                return;
+            }
+            if (method.equals("POST") && path.equals("/batch")) {
+                batch(ex);
+                return;
+            }
+            send(ex, route(method, path, ex));
+        } catch (BadRequest e) {
+            try {
+                send(ex, error(400, e.getMessage()));
+            } catch (IOException ignored) {
+                // client went away
+            }
+        } catch (IOException e) {
+            // client went away
+        } catch (RuntimeException e) {
+            System.err.println("Request failed: " + e);
+            try {
+                send(ex, error(500, "Internal error"));
+            } catch (IOException ignored) {
+                // response may already be under way
+            }
+        } finally {
+            ex.close();
+        }
+    }
+
+    private Reply route(String method, String path, HttpExchange ex) throws IOException {
+        try {
+            return dispatch(method, path, ex);
+        } catch (BadRequest e) {
+            return error(400, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return error(409, e.getMessage());
+        }
+    }
+
+    private Reply dispatch(String method, String path, HttpExchange ex) throws IOException {
+        if (path.equals("/products")) {
+            if (!method.equals("POST")) return error(405, "Method not allowed");
+            Product p = product(body(ex), null);
+            manager.addProduct(p);
+            return new Reply(201, Json.product(new StringBuilder(), p).toString());
+        }
+        if (path.equals("/stock")) {
+            if (!method.equals("POST")) return error(405, "Method not allowed");
+            return stock(object(body(ex)));
+        }
+        if (path.equals("/stats")) {
+            if (!method.equals("GET")) return error(405, "Method not allowed");
+            return stats();
+        }
+        if (path.startsWith("/products/")) {
+            String rest = path.substring("/products/".length());
+            if (rest.endsWith("/reorder-point")) {
+                String barcode = decodeSegment(rest.substring(0, rest.length() - "/reorder-point".length()));
+                if (method.equals("GET")) {
+                    if (!manager.containsBarcode(barcode)) return error(404, "No product with barcode: " + barcode);
+                    return new Reply(200, "{\"reorderPoint\":" + manager.getReorderPoint(barcode) + "}");
+                }
+                if (!method.equals("PUT")) return error(405, "Method not allowed");
+                return reorderPoint(barcode, object(body(ex)));
+            }
+            String barcode = decodeSegment(rest);
+            switch (method) {
+                case "GET": return get(barcode);
+                case "PUT": return update(barcode, product(body(ex), barcode));
+                case "DELETE":
+                    manager.deleteProduct(barcode);
+                    return new Reply(204, null);
+                default: return error(405, "Method not allowed");
+            }
+        }
+        return error(404, "No such endpoint");
+    }
+
+    private Reply get(String barcode) {
+        Product p = manager.getProductByBarcode(barcode);
+        return p == null ? error(404, "No product with barcode: " + barcode) : new Reply(200, Json.product(new StringBuilder(), p).toString());
+    }
+
+    private Reply update(String barcode, Product p) {
+        manager.updateProduct(barcode, p);
+        return new Reply(200, Json.product(new StringBuilder(), p).toString());
+    }
+
+    private Reply reorderPoint(String barcode, Map<String, Object> req) {
+        Object v = req.get("reorderPoint");
+        if (v != null && !(v instanceof BigDecimal)) throw new BadRequest("reorderPoint must be a number or null");
+        manager.setReorderPoint(barcode, v == null ? null : ((BigDecimal) v).doubleValue());
+        return new Reply(200, "{\"reorderPoint\":" + manager.getReorderPoint(barcode) + "}");
+    }
+
+    private Reply stock(Map<String, Object> req) {
+        Object lines = req.get("lines");
+        if (!(lines instanceof List)) throw new BadRequest("lines must be an array");
+        StockTransaction tx = new StockTransaction();
+        for (Object o : (List<?>) lines) {
+            Map<String, Object> line = asObject(o);
+            String kind = string(line, "kind");
+            String barcode = string(line, "barcode");
+            double qty = decimal(line, "quantity").doubleValue();
+            if (!"receive".equals(kind) && !"pick".equals(kind) && !"adjust".equals(kind)) {
+                throw new BadRequest("kind must be receive, pick or adjust");
+            }
+            try {
+                if ("receive".equals(kind)) tx.receive(barcode, qty);
+                else if ("pick".equals(kind)) tx.pick(barcode, qty);
+                else tx.adjust(barcode, qty);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequest(e.getMessage());
+            }
+        }
+        StringBuilder b = new StringBuilder("[");
+        for (Product p : manager.applyTransaction(tx)) {
+            if (b.length() > 1) b.append(',');
+            Json.product(b, p);
+        }
+        return new Reply(200, b.append(']').toString());
+    }
+
+    // Polled by monitoring and by every ShardedInventory total, so it must not take
+    // the write gate and stall writers the way getStats() does
+    private Reply stats() {
+        InventoryAggregates.Snapshot s = manager.getApproximateStats();
+        StringBuilder b = new StringBuilder("{\"skuCount\":").append(s.getSkuCount())
+                .append(",\"lowStockCount\":").append(s.getLowStockCount())
+                .append(",\"totalValue\":").append(s.getTotalValue().toPlainString())
+                .append(",\"unitsByType\":{");
+        boolean first = true;
+        for (Map.Entry<String, BigDecimal> e : s.getUnitsByType().entrySet()) {
+            if (!first) b.append(',');
+            first = false;
+            Json.quote(b, e.getKey()).append(':').append(e.getValue().toPlainString());
+        }
+        return new Reply(200, b.append("}}").toString());
+    }
+
+    /**
+     * One JSON request per line, e.g. {"op":"get","barcode":"A1"}; ops are get, search,
+     * add, update, delete, stock and reorder-point, with the fields of the matching REST
+     * call. Requests run in order and each result line, {"status":n,"body":..} or
+     * {"status":n,"error":..}, is written as soon as it is ready.
+     */
+    private void batch(HttpExchange ex) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        ex.sendResponseHeaders(200, 0);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                Reply r;
+                try {
+                    r = batchOp(object(line));
+                } catch (BadRequest e) {
+                    r = error(400, e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    r = error(409, e.getMessage());
+                }
+                StringBuilder b = new StringBuilder("{\"status\":").append(r.status);
+                if (r.body != null) b.append(",\"body\":").append(r.body);
+                if (r.error != null) Json.quote(b.append(",\"error\":"), r.error);
+                out.write(b.append("}\n").toString());
+                // flush once the pipeline has drained so replies are not held back
+                if (!in.ready()) out.flush();
+            }
+        }
+    }
+
+    private Reply batchOp(Map<String, Object> req) {
+        String op = string(req, "op");
+        if (op == null) throw new BadRequest("op required");
+        switch (op) {
+            case "get": return get(requiredString(req, "barcode"));
+            case "search": {
+                int limit = req.containsKey("limit") ? decimal(req, "limit").intValue() : 0;
+                StringBuilder b = new StringBuilder("[");
+                for (Product p : manager.search(requiredString(req, "q"), limit)) {
+                    if (b.length() > 1) b.append(',');
+                    Json.product(b, p);
+                }
+                return new Reply(200, b.append(']').toString());
+            }
+            case "add": {
+                Product p = product(asObject(req.get("product")), null);
+                manager.addProduct(p);
+                return new Reply(201, Json.product(new StringBuilder(), p).toString());
+            }
+            case "update": {
+                String barcode = requiredString(req, "barcode");
+                return update(barcode, product(asObject(req.get("product")), barcode));
+            }
+            case "delete":
+                manager.deleteProduct(requiredString(req, "barcode"));
+                return new Reply(204, null);
+            case "stock": return stock(req);
+            case "reorder-point": return reorderPoint(requiredString(req, "barcode"), req);
+            default: throw new BadRequest("Unknown op: " + op);
+        }
+    }
+
+    // Writes one snapshot as a JSON array, element by element, so a large listing is
+    // consistent and never sits in memory whole; the scan stops once limit is reached
+    private void streamAll(HttpExchange ex, int limit) throws IOException {
+        startStream(ex);
+        try (Writer out = new OutputStreamWriter(new BufferedOutputStream(ex.getResponseBody(), STREAM_BUFFER), StandardCharsets.UTF_8)) {
+            StringBuilder b = new StringBuilder(256);
+            out.write('[');
+            try (InventorySnapshot snapshot = manager.snapshot()) {
+                Spliterator<Product> products = snapshot.spliterator();
+                Product[] next = new Product[1];
+                int count = 0;
+                while ((limit <= 0 || count < limit) && products.tryAdvance(p -> next[0] = p)) {
+                    b.setLength(0);
+                    if (count++ > 0) b.append(',');
+                    Json.product(b, next[0]);
+                    out.append(b);
+                }
+            }
+            out.write(']');
+        }
+    }
+
+    private void streamList(HttpExchange ex, List<Product> products) throws IOException {
+        startStream(ex);
+        try (Writer out = new OutputStreamWriter(new BufferedOutputStream(ex.getResponseBody(), STREAM_BUFFER), StandardCharsets.UTF_8)) {
+            StringBuilder b = new StringBuilder(256);
+            out.write('[');
+            for (int i = 0; i < products.size(); i++) {
+                b.setLength(0);
+                if (i > 0) b.append(',');
+                out.append(Json.product(b, products.get(i)));
+            }
+            out.write(']');
+        }
+    }
+
+    private static void startStream(HttpExchange ex) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(200, 0);
+    }
+
+    private static void send(HttpExchange ex, Reply r) throws IOException {
+        String body = r.error != null ? Json.quote(new StringBuilder("{\"error\":"), r.error).append('}').toString() : r.body;
+        if (body == null) {
+            ex.sendResponseHeaders(r.status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(r.status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Reply error(int status, String message) {
+        return new Reply(status, null, message == null ? "Error" : message);
+    }
+
+    private static String body(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                if (buf.size() + n > MAX_BODY) throw new BadRequest("Request body too large");
+                buf.write(chunk, 0, n);
+            }
+            return buf.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, Object> object(String text) {
+        try {
+            return Json.parseObject(text);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> asObject(Object o) {
+        if (!(o instanceof Map)) throw new BadRequest("JSON object expected");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> m = (Map<String, Object>) o;
+        return m;
+    }
+
+    private static Product product(String text, String barcode) {
+        return product(object(text), barcode);
+    }
+
+    private static Product product(Map<String, Object> o, String barcode) {
+        try {
+            return Json.toProduct(o, barcode);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(e.getMessage());
+        }
+    }
+
+    private static BigDecimal decimal(Map<String, Object> o, String field) {
+        try {
+            return Json.decimal(o, field);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(e.getMessage());
+        }
+    }
+
+    private static String string(Map<String, Object> o, String field) {
+        try {
+            return Json.string(o, field);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(e.getMessage());
+        }
+    }
+
+    private static String requiredString(Map<String, Object> o, String field) {
+        String v = string(o, field);
+        if (v == null || v.isEmpty()) throw new BadRequest(field + " required");
+        return v;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int fallback) {
+        String v = query.get(name);
+        if (v == null) return fallback;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> out = new HashMap<>();
+        if (raw == null) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) out.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+        }
+        return out;
+    }
+
+    // A path segment is not form data: only %XX escapes mean anything, a '+' is itself
+    private static String decodeSegment(String s) {
+        return decode(s.replace("+", "%2B"));
+    }
+
+    // Query strings are form-encoded, so '+' is a space
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest("Malformed URL encoding");
+        }
+    }
+}
\ No newline at end of file
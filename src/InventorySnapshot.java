@@ -0,0 +1,83 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A read-only view of the catalog frozen at one epoch: every mutation committed
+ * before InventoryManager.snapshot() returned and none after, never half of one.
+ * Nothing is copied up front; reads go to the live store and fall back to the older
+ * versions it keeps for products changed since. Close it promptly, since those
+ * versions are kept until the last snapshot that can read them is closed.
+ */
+public class InventorySnapshot implements AutoCloseable {
+
+    private final ProductStore products;
+    private final long epoch;
+    private final InventoryAggregates.Snapshot stats;
+    private final LongConsumer onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    InventorySnapshot(ProductStore products, long epoch, InventoryAggregates.Snapshot stats, LongConsumer onClose) {
+        this.products = products;
+        this.epoch = epoch;
+        this.stats = stats;
+        this.onClose = onClose;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public Product getProductByBarcode(String barcode) {
+        checkOpen();
+        return barcode == null ? null : products.get(barcode, epoch);
+    }
+
+    public boolean containsBarcode(String barcode) {
+        return getProductByBarcode(barcode) != null;
+    }
+
+    /** Streams every product in the snapshot without building a list. */
+    public void forEachProduct(Consumer<Product> action) {
+        checkOpen();
+        products.forEach(epoch, action);
+    }
+
+    /** Splits over the snapshot's products, for parallel scans such as InventoryReports. */
+    public Spliterator<Product> spliterator() {
+        checkOpen();
+        return products.spliterator(epoch);
+    }
+
+    public List<Product> getAllProducts() {
+        List<Product> all = new ArrayList<>((int) stats.getSkuCount());
+        forEachProduct(all::add);
+        return all;
+    }
+
+    public int size() {
+        return (int) stats.getSkuCount();
+    }
+
+    public BigDecimal getTotalInventoryValue() {
+        return stats.getTotalValue();
+    }
+
+    /** The aggregates as they stood at the snapshot's epoch. */
+    public InventoryAggregates.Snapshot getStats() {
+        return stats;
+    }
+
+    private void checkOpen() {
+        if (closed.get()) throw new IllegalStateException("Snapshot " + epoch + " is closed");
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) onClose.accept(epoch);
+    }
+}
\ No newline at end of file
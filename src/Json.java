@@ -0,0 +1,223 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for InventoryServer. parse() returns Map, List, String,
+ * BigDecimal, Boolean or null and throws IllegalArgumentException on malformed
+ * input; the write helpers append to a StringBuilder.
+ */
+public final class Json {
+
+    private final String s;
+    private int pos;
+
+    private Json(String s) {
+        this.s = s;
+    }
+
+    public static Object parse(String text) {
+        Json p = new Json(text);
+        Object v = p.value();
+        p.skipSpace();
+        if (p.pos != text.length()) throw p.error("trailing characters");
+        return v;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object v = parse(text);
+        if (!(v instanceof Map)) throw new IllegalArgumentException("JSON object expected");
+        return (Map<String, Object>) v;
+    }
+
+    private Object value() {
+        skipSpace();
+        if (pos >= s.length()) throw error("unexpected end");
+        char c = s.charAt(pos);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("unexpected '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            return out;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') throw error("field name expected");
+            String key = string();
+            skipSpace();
+            expect(':');
+            out.put(key, value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return out;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> out = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            return out;
+        }
+        while (true) {
+            out.add(value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return out;
+            }
+        }
+    }
+
+    private String string() {
+        pos++;
+        StringBuilder b = new StringBuilder();
+        while (true) {
+            if (pos >= s.length()) throw error("unterminated string");
+            char c = s.charAt(pos++);
+            if (c == '"') return b.toString();
+            if (c != '\\') {
+                b.append(c);
+                continue;
+            }
+            if (pos >= s.length()) throw error("unterminated string");
+            char e = s.charAt(pos++);
+            switch (e) {
+                case '"': case '\\': case '/': b.append(e); break;
+                case 'b': b.append('\b'); break;
+                case 'f': b.append('\f'); break;
+                case 'n': b.append('\n'); break;
+                case 'r': b.append('\r'); break;
+                case 't': b.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > s.length()) throw error("bad escape");
+                    try {
+                        b.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("bad escape");
+                    }
+                    pos += 4;
+                    break;
+                default: throw error("bad escape");
+            }
+        }
+    }
+
+    private BigDecimal number() {
+        int start = pos;
+        while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) pos++;
+        try {
+            return new BigDecimal(s.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("bad number");
+        }
+    }
+
+    private Object literal(String word, Object v) {
+        if (!s.startsWith(word, pos)) throw error("unexpected token");
+        pos += word.length();
+        return v;
+    }
+
+    private void skipSpace() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    private char peek() {
+        return pos < s.length() ? s.charAt(pos) : '\0';
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("'" + c + "' expected");
+        pos++;
+    }
+
+    private IllegalArgumentException error(String what) {
+        return new IllegalArgumentException("Malformed JSON at " + pos + ": " + what);
+    }
+
+    public static StringBuilder quote(StringBuilder b, String v) {
+        if (v == null) return b.append("null");
+        b.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"': b.append("\\\""); break;
+                case '\\': b.append("\\\\"); break;
+                case '\n': b.append("\\n"); break;
+                case '\r': b.append("\\r"); break;
+                case '\t': b.append("\\t"); break;
+                default:
+                    if (c < 0x20) b.append(String.format("\\u%04x", (int) c));
+                    else b.append(c);
+            }
+        }
+        return b.append('"');
+    }
+
+    public static StringBuilder product(StringBuilder b, Product p) {
+        b.append("{\"barcode\":");
+        quote(b, p.getBarcode());
+        b.append(",\"name\":");
+        quote(b, p.getName());
+        b.append(",\"quantity\":").append(p.getQuantity());
+        b.append(",\"unit\":");
+        quote(b, p.getUnit());
+        b.append(",\"price\":").append(p.getPrice().setScale(2, RoundingMode.HALF_UP).toPlainString());
+        return b.append('}');
+    }
+
+    /** Reads a product; {@code barcode} fills in a missing barcode field. */
+    public static Product toProduct(Map<String, Object> o, String barcode) {
+        Object code = o.containsKey("barcode") ? o.get("barcode") : barcode;
+        if (!(code instanceof String) || ((String) code).trim().isEmpty()) throw new IllegalArgumentException("Product barcode required");
+        return new Product((String) code, string(o, "name"), decimal(o, "quantity").doubleValue(),
+                string(o, "unit"), decimal(o, "price"));
+    }
+
+    public static String string(Map<String, Object> o, String field) {
+        Object v = o.get(field);
+        if (v != null && !(v instanceof String)) throw new IllegalArgumentException(field + " must be a string");
+        return (String) v;
+    }
+
+    public static BigDecimal decimal(Map<String, Object> o, String field) {
+        Object v = o.get(field);
+        if (v instanceof BigDecimal) return (BigDecimal) v;
+        if (v instanceof String) {
+            try {
+                return new BigDecimal(((String) v).trim());
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw new IllegalArgumentException(field + " must be a number");
+    }
+}
\ No newline at end of file
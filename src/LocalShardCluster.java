@@ -0,0 +1,61 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A shard cluster inside one JVM: N independent InventoryManagers, each behind its
+ * own InventoryServer on a free loopback port, so ShardedInventory can be tried
+ * and benchmarked without starting processes. The nodes share this machine's
+ * cores, so write throughput scales only as far as there are cores to spare.
+ */
+public class LocalShardCluster implements AutoCloseable {
+
+    private final List<InventoryManager> managers = new ArrayList<>();
+    private final List<InventoryServer> servers = new ArrayList<>();
+    private final List<URI> nodes = new ArrayList<>();
+
+    /** {@code dataDir} null keeps the shards in memory; otherwise shard i journals to dataDir/shard-i. */
+    public LocalShardCluster(int shards, int threadsPerShard, Path dataDir) throws IOException {
+        if (shards < 1) throw new IllegalArgumentException("At least one shard required");
+        try {
+            for (int i = 0; i < shards; i++) {
+                InventoryManager m = new InventoryManager();
+                if (dataDir != null) m.openJournal(dataDir.resolve("shard-" + i));
+                managers.add(m);
+                InventoryServer s = new InventoryServer(m, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), threadsPerShard);
+                s.start();
+                servers.add(s);
+                nodes.add(URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + s.getPort()));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public List<URI> getNodes() {
+        return List.copyOf(nodes);
+    }
+
+    /** The manager behind shard {@code i}, for inspecting what landed where. */
+    public InventoryManager getShard(int i) {
+        return managers.get(i);
+    }
+
+    /** A client whose ring names the shards shard-0..N-1, stable across restarts on new ports. */
+    public ShardedInventory client() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) names.add("shard-" + i);
+        return new ShardedInventory(names, nodes);
+    }
+
+    @Override
+    public void close() {
+        for (InventoryServer s : servers) s.stop(0);
+        for (InventoryManager m : managers) m.closeJournal();
+    }
+}
\ No newline at end of file
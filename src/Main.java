@@ -1,7 +1,46 @@
-import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Main {
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(InventoryGUI::showGui);
+        Path data = Paths.get(System.getProperty("inventory.data", "data"));
+        if (args.length > 0 && args[0].equals("--server")) {
+            // the server takes requests only once the whole catalog is back
+            try {
+                InventoryManager.getInstance().openJournal(data);
+            } catch (IOException e) {
+                System.err.println("Could not open inventory data, running in memory: " + e.getMessage());
+            }
+            InventoryManager.getInstance().registerMBeans();
+            startServer(args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+            return;
+        }
+        // the window comes up first and the catalog is recovered behind it; if that
+        // fails the GUI reports it and stays read-only rather than run unjournaled
+        InventoryGUI.showGui(progress -> {
+            try {
+                InventoryManager.getInstance().openJournal(data, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            InventoryManager.getInstance().registerMBeans();
+        });
+    }
+
+    // Headless mode: java -jar inventory.jar --server [port]; -Dinventory.server.threads sizes the pool
+    private static void startServer(int port) {
+        int threads = Integer.getInteger("inventory.server.threads", Math.max(64, Runtime.getRuntime().availableProcessors() * 32));
+        try {
+            InventoryServer server = new InventoryServer(InventoryManager.getInstance(), new InetSocketAddress(port), threads);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(2), "inventory-http-shutdown"));
+            System.out.println("Inventory server listening on port " + server.getPort());
+        } catch (IOException e) {
+            System.err.println("Could not start server on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Default engine: a ConcurrentHashMap from barcode to the newest ProductVersion,
+ * which links to any older versions open snapshots still need. Tombstones stay in
+ * the map until pruned so a snapshot scan visits every barcode exactly once.
+ */
+public class MapProductStore implements ProductStore {
+
+    private final ConcurrentHashMap<String, ProductVersion> products = new ConcurrentHashMap<>();
+    // barcodes holding history or a tombstone, so prune() need not scan the whole map
+    private final Set<String> versioned = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger tombstones = new AtomicInteger();
+
+    @Override
+    public Product get(String barcode) {
+        ProductVersion v = products.get(barcode);
+        return v == null ? null : v.product;
+    }
+
+    @Override
+    public boolean containsKey(String barcode) {
+        return get(barcode) != null;
+    }
+
+    @Override
+    public void put(Product product, long stamp, long horizon) {
+        String code = product.getBarcode();
+        ProductVersion old = products.get(code);
+        ProductVersion replaced = products.put(code, new ProductVersion(product.freeze(), stamp, retained(code, old, horizon)));
+        // prune() may have dropped the tombstone meanwhile, so count what was actually replaced
+        if (replaced != null && replaced.product == null) tombstones.decrementAndGet();
+    }
+
+    @Override
+    public Product remove(String barcode, long stamp, long horizon) {
+        ProductVersion old = products.get(barcode);
+        if (old == null || old.product == null) return null;
+        ProductVersion older = retained(barcode, old, horizon);
+        if (older == null) {
+            products.remove(barcode);
+        } else {
+            tombstones.incrementAndGet();
+            products.put(barcode, new ProductVersion(null, stamp, older));
+        }
+        return old.product;
+    }
+
+    // what a new version links to: the one it replaces if a snapshot can still read it
+    private ProductVersion retained(String barcode, ProductVersion old, long horizon) {
+        if (old == null || horizon == NO_SNAPSHOT) return null;
+        if (old.stamp > horizon) return old.older;
+        versioned.add(barcode);
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return products.size() - tombstones.get();
+    }
+
+    @Override
+    public void forEach(Consumer<Product> action) {
+        for (ProductVersion v : products.values()) {
+            if (v.product != null) action.accept(v.product);
+        }
+    }
+
+    @Override
+    public List<Product> values() {
+        List<Product> out = new ArrayList<>(products.size());
+        forEach(out::add);
+        return out;
+    }
+
+    @Override
+    public Product get(String barcode, long epoch) {
+        ProductVersion v = products.get(barcode);
+        v = v == null ? null : v.asOf(epoch);
+        return v == null ? null : v.product;
+    }
+
+    @Override
+    public void forEach(long epoch, Consumer<Product> action) {
+        for (ProductVersion head : products.values()) {
+            ProductVersion v = head.asOf(epoch);
+            if (v != null && v.product != null) action.accept(v.product);
+        }
+    }
+
+    @Override
+    public Spliterator<Product> spliterator(long epoch) {
+        return new VersionSpliterator(products.values().spliterator(), epoch);
+    }
+
+    @Override
+    public void prune(long oldest) {
+        for (String barcode : versioned) {
+            ProductVersion v = products.get(barcode);
+            if (v == null) {
+                versioned.remove(barcode);
+                continue;
+            }
+            v.prune(oldest);
+            if (v.product == null && v.stamp <= oldest && products.remove(barcode, v)) tombstones.decrementAndGet();
+            versioned.remove(barcode);
+            // a writer may have added history since; keep tracking the barcode if so
+            v = products.get(barcode);
+            if (v != null && (v.product == null || v.older != null)) versioned.add(barcode);
+        }
+    }
+
+    // splits follow the map's own table ranges
+    private static final class VersionSpliterator implements Spliterator<Product> {
+        private final Spliterator<ProductVersion> heads;
+        private final long epoch;
+
+        VersionSpliterator(Spliterator<ProductVersion> heads, long epoch) {
+            this.heads = heads;
+            this.epoch = epoch;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Product> action) {
+            Product[] found = new Product[1];
+            while (found[0] == null && heads.tryAdvance(head -> found[0] = visible(head))) {
+                // skip versions the snapshot cannot see
+            }
+            if (found[0] == null) return false;
+            action.accept(found[0]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Product> action) {
+            heads.forEachRemaining(head -> {
+                Product p = visible(head);
+                if (p != null) action.accept(p);
+            });
+        }
+
+        private Product visible(ProductVersion head) {
+            ProductVersion v = head.asOf(epoch);
+            return v == null ? null : v.product;
+        }
+
+        @Override
+        public Spliterator<Product> trySplit() {
+            Spliterator<ProductVersion> half = heads.trySplit();
+            return half == null ? null : new VersionSpliterator(half, epoch);
+        }
+
+        @Override
+        public long estimateSize() {
+            return heads.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return CONCURRENT | NONNULL;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,803 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only history of every quantity and price change, per barcode. Movements
+ * are appended to an in-memory buffer; every SEGMENT_ROWS of them a background
+ * thread seals the buffer into an immutable segment, sorted by barcode and then
+ * time. Each barcode's rows in a segment are stored column by column, with
+ * timestamps, quantities (in units or thousandths) and prices (in cents) as
+ * zigzag varint deltas from the previous row, and a directory sorted by barcode
+ * id lets a query binary-search straight to them. A movement takes about 8 bytes.
+ *
+ * After open(dir), segments are written to {@code dir}, fsynced, and memory-mapped
+ * from there, so history far larger than the heap stays queryable.
+ *
+ * History is best-effort, not journaled. Movements not yet in a written segment
+ * (up to SEGMENT_ROWS in the active buffer plus MAX_PENDING buffers waiting for the
+ * sealer) are lost if the process dies without close(), and are not rebuilt from
+ * InventoryManager's journal. After a failed seal the ledger refuses further
+ * movements; InventoryManager then stops recording and carries on without history.
+ */
+public class MovementLedger implements Closeable {
+
+    public static final int SEGMENT_ROWS = 1 << 20;
+
+    private static final int MAX_PENDING = 2;
+    private static final int SEGMENT_MAGIC = 0x4D4F5631; // "MOV1"
+    private static final int HEADER = 28;
+    private static final int DIR_ENTRY = 12;
+    // low two bits of each quantity entry
+    private static final int TAG_UNITS = 0;
+    private static final int TAG_MILLIS = 1;
+    private static final int TAG_RAW = 2;
+    private static final int TAG_REMOVED = 3;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String BARCODES = "barcodes.dat";
+
+    private final Object lock = new Object();
+    // guarded by lock
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> barcodes = new ArrayList<>();
+    private Buffer active = new Buffer();
+    private final ArrayDeque<Buffer> pending = new ArrayDeque<>();
+    private Segment[] sealed = new Segment[0];
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long count;
+    private Thread sealer;
+    private Path dir;
+    private int persistedBarcodes;
+    private int nextSegment;
+    private IOException failure;
+    private boolean closed;
+
+    /** One recorded change: the product's quantity and price from {@code timestamp} on. */
+    public static final class Movement {
+        private final long timestamp;
+        private final double quantity;
+        private final long priceCents;
+        private final boolean removed;
+
+        Movement(long timestamp, double quantity, long priceCents, boolean removed) {
+            this.timestamp = timestamp;
+            this.quantity = quantity;
+            this.priceCents = priceCents;
+            this.removed = removed;
+        }
+
+        public long getTimestamp() { return timestamp; }
+        public double getQuantity() { return quantity; }
+        public BigDecimal getPrice() { return BigDecimal.valueOf(priceCents, 2); }
+        /** True if the product was deleted (or renamed away) at this point. */
+        public boolean isRemoved() { return removed; }
+        public BigDecimal getValue() { return value(quantity, priceCents); }
+    }
+
+    /** Stock and value at the end of one day, carried forward over days without movements. */
+    public static final class DailyClose {
+        private final LocalDate date;
+        private final double quantity;
+        private final BigDecimal value;
+
+        DailyClose(LocalDate date, double quantity, BigDecimal value) {
+            this.date = date;
+            this.quantity = quantity;
+            this.value = value;
+        }
+
+        public LocalDate getDate() { return date; }
+        public double getQuantity() { return quantity; }
+        public BigDecimal getValue() { return value; }
+    }
+
+    /** Opening and closing stock over a range and the units moved in and out in between. */
+    public static final class Summary {
+        private final double opening;
+        private final double closing;
+        private final double unitsIn;
+        private final double unitsOut;
+        private final long movements;
+
+        Summary(double opening, double closing, double unitsIn, double unitsOut, long movements) {
+            this.opening = opening;
+            this.closing = closing;
+            this.unitsIn = unitsIn;
+            this.unitsOut = unitsOut;
+            this.movements = movements;
+        }
+
+        public double getOpening() { return opening; }
+        public double getClosing() { return closing; }
+        public double getUnitsIn() { return unitsIn; }
+        public double getUnitsOut() { return unitsOut; }
+        public long getMovements() { return movements; }
+
+        /** Units out over average stock; NaN if there was no stock to turn over. */
+        public double getTurnover() {
+            double average = (opening + closing) / 2;
+            return average > 0 ? unitsOut / average : Double.NaN;
+        }
+    }
+
+    /**
+     * Loads the segments already in {@code dir} and writes every segment sealed from
+     * now on there, including any sealed before.
+     */
+    public void open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> s = Files.list(dir)) {
+            for (Path p : s.filter(p -> p.getFileName().toString().endsWith(".tmp")).collect(Collectors.toList())) Files.delete(p);
+        }
+        List<String> names = new ArrayList<>();
+        Path dict = dir.resolve(BARCODES);
+        if (Files.exists(dict)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dict)))) {
+                while (true) names.add(in.readUTF());
+            } catch (EOFException e) {
+                // end of dictionary
+            }
+        }
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX) && p.getFileName().toString().endsWith(".seg"))
+                    .sorted().collect(Collectors.toList());
+        }
+        List<Segment> loaded = new ArrayList<>();
+        for (Path p : files) loaded.add(Segment.map(p));
+        synchronized (lock) {
+            if (this.dir != null) throw new IllegalStateException("Movement ledger already open");
+            if (count > 0 || !barcodes.isEmpty()) throw new IllegalStateException("Movement ledger must be opened before recording");
+            for (String b : names) {
+                ids.put(b, barcodes.size());
+                barcodes.add(b);
+            }
+            persistedBarcodes = names.size();
+            sealed = loaded.toArray(new Segment[0]);
+            for (Segment s : sealed) {
+                count += s.rows;
+                lastTimestamp = Math.max(lastTimestamp, s.maxTs);
+            }
+            nextSegment = files.isEmpty() ? 0 : segmentNumber(files.get(files.size() - 1)) + 1;
+            this.dir = dir;
+        }
+    }
+
+    public void record(String barcode, long timestamp, double quantity, BigDecimal price) {
+        append(barcode, timestamp, quantity, price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact(), false);
+    }
+
+    public void recordRemoval(String barcode, long timestamp) {
+        append(barcode, timestamp, 0, 0, true);
+    }
+
+    // Timestamps are clamped to never go backwards, so rows stay in time order
+    // even if the wall clock steps back.
+    private void append(String barcode, long timestamp, double quantity, long cents, boolean removed) {
+        if (barcode == null || barcode.isEmpty()) throw new IllegalArgumentException("Product barcode required");
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("Movement ledger closed");
+            if (failure != null) throw new IllegalStateException("Movement ledger failed", failure);
+            Integer id = ids.get(barcode);
+            if (id == null) {
+                id = barcodes.size();
+                ids.put(barcode, id);
+                barcodes.add(barcode);
+            }
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            active.add(id, lastTimestamp, quantity, cents, removed);
+            count++;
+            if (active.size == SEGMENT_ROWS) {
+                pending.add(active);
+                active = new Buffer();
+                startSealer();
+                lock.notifyAll();
+                // writers faster than the sealer wait rather than queue buffers without bound
+                while (pending.size() > MAX_PENDING && failure == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    public long size() {
+        synchronized (lock) {
+            return count;
+        }
+    }
+
+    /** Bytes used by sealed segments, directory and headers included. */
+    public long getSealedBytes() {
+        Segment[] segments;
+        synchronized (lock) {
+            segments = sealed;
+        }
+        long n = 0;
+        for (Segment s : segments) n += s.data.capacity();
+        return n;
+    }
+
+    /** Movements of {@code barcode} with {@code from <= timestamp < to}, oldest first. */
+    public List<Movement> history(String barcode, long from, long to) {
+        List<Movement> out = new ArrayList<>();
+        View v = view(barcode);
+        if (v != null) v.scan(from, to, (ts, q, c, r) -> out.add(new Movement(ts, q, c, r)));
+        return out;
+    }
+
+    /** The last movement of {@code barcode} at or before {@code at}, or null if there is none. */
+    public Movement stateAt(String barcode, long at) {
+        View v = view(barcode);
+        return v == null ? null : v.last(at);
+    }
+
+    public Summary summarize(String barcode, long from, long to) {
+        View v = view(barcode);
+        Movement start = v == null ? null : v.last(from - 1);
+        double opening = start == null ? 0 : start.quantity;
+        double[] acc = {opening, 0, 0, 0};
+        if (v != null) {
+            v.scan(from, to, (ts, q, c, r) -> {
+                double delta = q - acc[0];
+                if (delta > 0) acc[1] += delta;
+                else acc[2] -= delta;
+                acc[0] = q;
+                acc[3]++;
+            });
+        }
+        return new Summary(opening, acc[0], acc[1], acc[2], (long) acc[3]);
+    }
+
+    /** Closing stock and value of {@code barcode} for each day from {@code first} to {@code last}. */
+    public List<DailyClose> dailyCloses(String barcode, LocalDate first, LocalDate last, ZoneId zone) {
+        List<DailyClose> out = new ArrayList<>();
+        if (last.isBefore(first)) return out;
+        View v = view(barcode);
+        long from = first.atStartOfDay(zone).toInstant().toEpochMilli();
+        long to = last.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        Movement start = v == null ? null : v.last(from - 1);
+        double[] state = {start == null ? 0 : start.quantity, start == null ? 0 : start.priceCents};
+        LocalDate[] day = {first};
+        long[] dayEnd = {first.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli()};
+        Visitor close = (ts, q, c, r) -> {
+            while (ts >= dayEnd[0]) {
+                out.add(new DailyClose(day[0], state[0], value(state[0], (long) state[1])));
+                day[0] = day[0].plusDays(1);
+                dayEnd[0] = day[0].plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            }
+            state[0] = q;
+            state[1] = c;
+        };
+        if (v != null) v.scan(from, to, close);
+        close.accept(to, 0, 0, false);
+        return out;
+    }
+
+    /** Seals everything recorded so far and waits until it is written. */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            if (active.size > 0) {
+                pending.add(active);
+                active = new Buffer();
+                startSealer();
+                lock.notifyAll();
+            }
+            while (!pending.isEmpty() && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while sealing movements", e);
+                }
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Seals what is left, stops the sealer thread and lets go of the mapped segments,
+     * which are unmapped once no query still reads them. Recording afterwards throws.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            Thread t;
+            synchronized (lock) {
+                closed = true;
+                t = sealer;
+                sealer = null;
+                pending.clear();
+                active = new Buffer();
+                sealed = new Segment[0];
+            }
+            if (t != null) t.interrupt();
+        }
+    }
+
+    private void startSealer() {
+        if (sealer != null) return;
+        sealer = new Thread(this::sealLoop, "inventory-ledger-sealer");
+        sealer.setDaemon(true);
+        sealer.start();
+    }
+
+    // Seals pending buffers in order; a buffer stays visible to queries as pending
+    // until its segment replaces it.
+    private void sealLoop() {
+        while (true) {
+            Buffer next;
+            Path target;
+            List<String> newBarcodes;
+            int segmentNo;
+            synchronized (lock) {
+                while (pending.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                next = pending.peekFirst();
+                target = dir;
+                newBarcodes = target == null ? null : new ArrayList<>(barcodes.subList(persistedBarcodes, barcodes.size()));
+                segmentNo = nextSegment++;
+            }
+            try {
+                Segment s = Segment.encode(next);
+                if (target != null) s = s.writeTo(target, segmentNo, newBarcodes);
+                synchronized (lock) {
+                    if (newBarcodes != null) persistedBarcodes += newBarcodes.size();
+                    Segment[] grown = Arrays.copyOf(sealed, sealed.length + 1);
+                    grown[sealed.length] = s;
+                    sealed = grown;
+                    pending.removeFirst();
+                    lock.notifyAll();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Movement ledger seal failed: " + e);
+                synchronized (lock) {
+                    failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    // null if the barcode was never recorded
+    private View view(String barcode) {
+        synchronized (lock) {
+            Integer id = barcode == null ? null : ids.get(barcode);
+            if (id == null) return null;
+            Slice[] unsealed = new Slice[pending.size() + 1];
+            int i = 0;
+            for (Buffer b : pending) unsealed[i++] = b.slice(id);
+            unsealed[i] = active.slice(id);
+            return new View(id, sealed, unsealed);
+        }
+    }
+
+    private static int segmentNumber(Path p) {
+        String name = p.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - ".seg".length()));
+    }
+
+    private static BigDecimal value(double quantity, long cents) {
+        return BigDecimal.valueOf(cents, 2).multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private interface Visitor {
+        void accept(long timestamp, double quantity, long cents, boolean removed);
+    }
+
+    // What one query reads for one barcode: sealed segments, then the pending
+    // buffers and the active one, in recording order.
+    private static final class View {
+        final int id;
+        final Segment[] sealed;
+        final Slice[] unsealed;
+
+        View(int id, Segment[] sealed, Slice[] unsealed) {
+            this.id = id;
+            this.sealed = sealed;
+            this.unsealed = unsealed;
+        }
+
+        void scan(long from, long to, Visitor v) {
+            for (Segment s : sealed) {
+                if (s.maxTs >= from && s.minTs < to) s.scan(id, from, to, v);
+            }
+            for (Slice s : unsealed) s.scan(from, to, v);
+        }
+
+        // newest container first, stopping at the first one with a match
+        Movement last(long at) {
+            long to = at == Long.MAX_VALUE ? at : at + 1;
+            Movement[] found = new Movement[1];
+            Visitor keep = (ts, q, c, r) -> found[0] = new Movement(ts, q, c, r);
+            for (int i = unsealed.length - 1; i >= 0 && found[0] == null; i--) unsealed[i].scan(Long.MIN_VALUE, to, keep);
+            for (int i = sealed.length - 1; i >= 0 && found[0] == null; i--) {
+                if (sealed[i].minTs <= at) sealed[i].scan(id, Long.MIN_VALUE, to, keep);
+            }
+            return found[0];
+        }
+    }
+
+    // Rows in recording order, growing up to SEGMENT_ROWS; rows below size never
+    // change once written. Each row links to the previous row of the same barcode,
+    // and an open-addressing table maps barcode id to its newest row, so one
+    // barcode's rows are found without scanning the others.
+    private static final class Buffer {
+        int[] ids = new int[1024];
+        long[] timestamps = new long[1024];
+        double[] quantities = new double[1024];
+        long[] cents = new long[1024];
+        boolean[] removed = new boolean[1024];
+        int[] prev = new int[1024];
+        // id + 1 per slot, 0 if empty
+        int[] headIds = new int[256];
+        int[] headRows = new int[256];
+        int headCount;
+        int size;
+
+        void add(int id, long ts, double quantity, long c, boolean r) {
+            if (size == ids.length) {
+                int n = Math.min(SEGMENT_ROWS, size * 2);
+                ids = Arrays.copyOf(ids, n);
+                timestamps = Arrays.copyOf(timestamps, n);
+                quantities = Arrays.copyOf(quantities, n);
+                cents = Arrays.copyOf(cents, n);
+                removed = Arrays.copyOf(removed, n);
+                prev = Arrays.copyOf(prev, n);
+            }
+            if (headCount * 2 >= headIds.length) growHeads();
+            ids[size] = id;
+            timestamps[size] = ts;
+            quantities[size] = quantity;
+            cents[size] = c;
+            removed[size] = r;
+            int slot = headSlot(id);
+            if (headIds[slot] == 0) {
+                headIds[slot] = id + 1;
+                headCount++;
+                prev[size] = -1;
+            } else {
+                prev[size] = headRows[slot];
+            }
+            headRows[slot] = size;
+            size++;
+        }
+
+        private int headSlot(int id) {
+            int mask = headIds.length - 1;
+            int slot = (id * 0x9E3779B9) >>> 7 & mask;
+            while (headIds[slot] != 0 && headIds[slot] != id + 1) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void growHeads() {
+            int[] oldIds = headIds;
+            int[] oldRows = headRows;
+            headIds = new int[oldIds.length * 2];
+            headRows = new int[oldIds.length * 2];
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] == 0) continue;
+                int slot = headSlot(oldIds[i] - 1);
+                headIds[slot] = oldIds[i];
+                headRows[slot] = oldRows[i];
+            }
+        }
+
+        // called under the ledger lock; the arrays are captured there because add may replace them
+        Slice slice(int id) {
+            int slot = headSlot(id);
+            return new Slice(timestamps, quantities, cents, removed, prev, headIds[slot] == 0 ? -1 : headRows[slot]);
+        }
+    }
+
+    private static final class Slice {
+        final long[] timestamps;
+        final double[] quantities;
+        final long[] cents;
+        final boolean[] removed;
+        final int[] prev;
+        final int head;
+
+        Slice(long[] timestamps, double[] quantities, long[] cents, boolean[] removed, int[] prev, int head) {
+            this.timestamps = timestamps;
+            this.quantities = quantities;
+            this.cents = cents;
+            this.removed = removed;
+            this.prev = prev;
+            this.head = head;
+        }
+
+        // walks the barcode's rows newest first, then visits the ones in range oldest first
+        void scan(long from, long to, Visitor v) {
+            int[] rows = new int[8];
+            int n = 0;
+            for (int row = head; row >= 0 && timestamps[row] >= from; row = prev[row]) {
+                if (timestamps[row] >= to) continue;
+                if (n == rows.length) rows = Arrays.copyOf(rows, n * 2);
+                rows[n++] = row;
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                int row = rows[i];
+                v.accept(timestamps[row], quantities[row], cents[row], removed[row]);
+            }
+        }
+    }
+
+    /**
+     * Immutable, sorted by barcode id then time. Layout: header (magic, rows, runs,
+     * min and max timestamp), a directory of (id, first row, data offset) per run,
+     * then per run the byte lengths of its timestamp and quantity columns followed by
+     * the timestamp, quantity and price columns.
+     */
+    private static final class Segment {
+        final ByteBuffer data;
+        final int rows;
+        final int runs;
+        final long minTs;
+        final long maxTs;
+
+        Segment(ByteBuffer data) {
+            this.data = data;
+            if (data.getInt(0) != SEGMENT_MAGIC) throw new IllegalArgumentException("Not a movement segment");
+            rows = data.getInt(4);
+            runs = data.getInt(8);
+            minTs = data.getLong(12);
+            maxTs = data.getLong(20);
+        }
+
+        static Segment map(Path file) throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                return new Segment(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt movement segment " + file, e);
+            }
+        }
+
+        static Segment encode(Buffer b) {
+            int n = b.size;
+            long[] order = new long[n];
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                order[i] = ((long) b.ids[i] << 32) | i;
+                min = Math.min(min, b.timestamps[i]);
+                max = Math.max(max, b.timestamps[i]);
+            }
+            Arrays.sort(order);
+            int runs = 0;
+            for (int i = 0; i < n; i++) if (i == 0 || (order[i] >>> 32) != (order[i - 1] >>> 32)) runs++;
+            Bytes body = new Bytes(n * 6);
+            Bytes ts = new Bytes(1024);
+            Bytes qty = new Bytes(1024);
+            Bytes price = new Bytes(1024);
+            ByteBuffer dir = ByteBuffer.allocate(runs * DIR_ENTRY);
+            int start = 0;
+            while (start < n) {
+                int id = (int) (order[start] >>> 32);
+                int end = start;
+                while (end < n && (int) (order[end] >>> 32) == id) end++;
+                ts.len = 0;
+                qty.len = 0;
+                price.len = 0;
+                long prevTs = min;
+                long prevMillis = 0;
+                long prevCents = 0;
+                for (int k = start; k < end; k++) {
+                    int row = (int) order[k];
+                    ts.zigzag(b.timestamps[row] - prevTs);
+                    prevTs = b.timestamps[row];
+                    double q = b.quantities[row];
+                    long millis = Math.round(q * 1000);
+                    if (b.removed[row]) {
+                        qty.varint(TAG_REMOVED);
+                        millis = 0;
+                    } else if (millis / 1000.0 == q) {
+                        // whole-unit changes, the common case, take a byte
+                        long d = millis - prevMillis;
+                        int tag = d % 1000 == 0 ? TAG_UNITS : TAG_MILLIS;
+                        if (tag == TAG_UNITS) d /= 1000;
+                        qty.varint(((d << 1) ^ (d >> 63)) << 2 | tag);
+                    } else {
+                        qty.varint(TAG_RAW);
+                        qty.raw(Double.doubleToLongBits(q));
+                    }
+                    prevMillis = millis;
+                    price.zigzag(b.cents[row] - prevCents);
+                    prevCents = b.cents[row];
+                }
+                dir.putInt(id).putInt(start).putInt(body.len);
+                body.varint(ts.len);
+                body.varint(qty.len);
+                body.append(ts);
+                body.append(qty);
+                body.append(price);
+                start = end;
+            }
+            ByteBuffer out = ByteBuffer.allocate(HEADER + runs * DIR_ENTRY + body.len);
+            out.putInt(SEGMENT_MAGIC).putInt(n).putInt(runs).putLong(min).putLong(max);
+            out.put(dir.array());
+            out.put(body.bytes, 0, body.len);
+            // directory data offsets are relative to the body; rebase them
+            int base = HEADER + runs * DIR_ENTRY;
+            for (int r = 0; r < runs; r++) {
+                int at = HEADER + r * DIR_ENTRY + 8;
+                out.putInt(at, out.getInt(at) + base);
+            }
+            return new Segment(out);
+        }
+
+        // New barcodes go to the dictionary before the segment that uses them.
+        Segment writeTo(Path dir, int number, List<String> newBarcodes) throws IOException {
+            if (!newBarcodes.isEmpty()) {
+                try (FileChannel ch = FileChannel.open(dir.resolve(BARCODES), StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)));
+                    for (String b : newBarcodes) out.writeUTF(b);
+                    out.flush();
+                    ch.force(true);
+                }
+            }
+            Path file = dir.resolve(String.format("%s%09d.seg", SEGMENT_PREFIX, number));
+            Path tmp = dir.resolve(file.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer src = data.duplicate();
+                src.clear();
+                while (src.hasRemaining()) ch.write(src);
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            InventoryJournal.forceDirectory(dir);
+            return map(file);
+        }
+
+        void scan(int id, long from, long to, Visitor v) {
+            int lo = 0;
+            int hi = runs - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int midId = data.getInt(HEADER + mid * DIR_ENTRY);
+                if (midId < id) lo = mid + 1;
+                else if (midId > id) hi = mid - 1;
+                else {
+                    decode(mid, from, to, v);
+                    return;
+                }
+            }
+        }
+
+        private void decode(int run, long from, long to, Visitor v) {
+            int entry = HEADER + run * DIR_ENTRY;
+            int first = data.getInt(entry + 4);
+            int n = (run + 1 < runs ? data.getInt(entry + DIR_ENTRY + 4) : rows) - first;
+            Cursor head = new Cursor(data, data.getInt(entry + 8));
+            int tsLen = (int) head.varint();
+            int qtyLen = (int) head.varint();
+            Cursor ts = new Cursor(data, head.pos);
+            Cursor qty = new Cursor(data, head.pos + tsLen);
+            Cursor price = new Cursor(data, head.pos + tsLen + qtyLen);
+            long t = minTs;
+            long millis = 0;
+            long cents = 0;
+            for (int i = 0; i < n; i++) {
+                t += ts.zigzag();
+                if (t >= to) return;
+                long tagged = qty.varint();
+                int tag = (int) (tagged & 3);
+                double q;
+                if (tag == TAG_REMOVED) {
+                    millis = 0;
+                    q = 0;
+                } else if (tag == TAG_RAW) {
+                    q = Double.longBitsToDouble(qty.raw());
+                    millis = Math.round(q * 1000);
+                } else {
+                    long z = tagged >>> 2;
+                    long d = (z >>> 1) ^ -(z & 1);
+                    millis += tag == TAG_UNITS ? d * 1000 : d;
+                    q = millis / 1000.0;
+                }
+                cents += price.zigzag();
+                if (t >= from) v.accept(t, q, cents, tag == TAG_REMOVED);
+            }
+        }
+    }
+
+    private static final class Bytes {
+        byte[] bytes;
+        int len;
+
+        Bytes(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void varint(long v) {
+            if (len + 10 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            while ((v & ~0x7FL) != 0) {
+                bytes[len++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[len++] = (byte) v;
+        }
+
+        void zigzag(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        // big-endian, as ByteBuffer.getLong reads it
+        void raw(long v) {
+            if (len + 8 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            for (int i = 0; i < 8; i++) bytes[len++] = (byte) (v >>> (56 - 8 * i));
+        }
+
+        void append(Bytes other) {
+            if (len + other.len > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, len + other.len));
+            System.arraycopy(other.bytes, 0, bytes, len, other.len);
+            len += other.len;
+        }
+    }
+
+    // Absolute reads, so a segment's buffer is shared by concurrent queries.
+    private static final class Cursor {
+        final ByteBuffer buf;
+        int pos;
+
+        Cursor(ByteBuffer buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        long varint() {
+            long v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buf.get(pos++);
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+        }
+
+        long zigzag() {
+            long z = varint();
+            return (z >>> 1) ^ -(z & 1);
+        }
+
+        long raw() {
+            long v = buf.getLong(pos);
+            pos += 8;
+            return v;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+/** JMX view of one InventoryManager operation, registered as inventory:type=Operation,name=... */
+public interface OperationMetricsMXBean {
+    long getCount();
+    long getErrors();
+    /** True when calls are timed about once a millisecond rather than every time; count is then samples taken. */
+    boolean isSampled();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
\ No newline at end of file
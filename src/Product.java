@@ -2,6 +2,11 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Objects;
 
+/**
+ * A catalog entry. InventoryManager stores and hands out frozen products, which
+ * reject every setter, so a committed version can be shared with readers and
+ * snapshots without copying; to change one, construct a new Product from it.
+ */
 public class Product {
 
     private String barcode;
@@ -9,15 +14,28 @@ public class Product {
     private double quantity;
     private String unit;
     private BigDecimal price;
+    private boolean frozen;
 
     public Product(String barcode, String name, double quantity, String unit, BigDecimal price) {
+        this(barcode, name, quantity, unit, price, false);
+    }
+
+    Product(String barcode, String name, double quantity, String unit, BigDecimal price, boolean frozen) {
         setBarcode(barcode);
         setName(name);
         setQuantity(quantity);
         setUnit(unit);
         setPrice(price);
+        this.frozen = frozen;
+    }
+
+    /** This product if already frozen, otherwise a frozen copy of it. */
+    public Product freeze() {
+        return frozen ? this : new Product(barcode, name, quantity, unit, price, true);
     }
 
+    public boolean isFrozen() { return frozen; }
+
     public String getBarcode() { return barcode; }
     public String getName() { return name; }
     public double getQuantity() { return quantity; }
@@ -25,18 +43,22 @@ public class Product {
     public BigDecimal getPrice() { return price; }
 
     public final void setBarcode(String barcode) {
+        checkMutable();
         this.barcode = barcode == null ? null : barcode.trim();
     }
 
     public final void setName(String name) {
+        checkMutable();
         this.name = name == null ? null : name.trim();
     }
 
     public final void setUnit(String unit) {
+        checkMutable();
         this.unit = unit == null ? "" : unit.trim();
     }
 
     public void setQuantity(double quantity) {
+        checkMutable();
         if (Double.isNaN(quantity) || Double.isInfinite(quantity)) {
             throw new IllegalArgumentException("Quantity must be a valid number");
         }
@@ -47,11 +69,16 @@ public class Product {
     }
 
     public final void setPrice(BigDecimal price) {
+        checkMutable();
         if (price == null) throw new IllegalArgumentException("Price cannot be null");
         if (price.compareTo(BigDecimal.ZERO) < 0) throw new IllegalArgumentException("Price cannot be negative");
         this.price = price.setScale(2, RoundingMode.HALF_UP);
     }
 
+    private void checkMutable() {
+        if (frozen) throw new IllegalStateException("Product " + barcode + " is frozen; create a new Product to change it");
+    }
+
     public BigDecimal getTotalValue() {
         return price.multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP);
     }
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine behind InventoryManager. Writes to one barcode are serialized by
+ * the caller (InventoryManager's lock stripes); writes to different barcodes and all
+ * reads may run concurrently.
+ *
+ * Engines are multi-version. Each write carries the epoch it commits in and the
+ * horizon, the epoch of the newest open snapshot; a version that snapshot could
+ * still read is kept behind its replacement, and a removal it could see leaves a
+ * tombstone, until prune() finds no open snapshot needs them.
+ */
+public interface ProductStore {
+
+    /** Horizon passed when no snapshot is open: nothing replaced is kept. */
+    long NO_SNAPSHOT = -1;
+
+    Product get(String barcode);
+
+    boolean containsKey(String barcode);
+
+    /** Inserts or replaces the product stored under its barcode, keeping no history. */
+    default void put(Product product) {
+        put(product, 0, NO_SNAPSHOT);
+    }
+
+    /** Removes and returns the product, or null if absent, keeping no history. */
+    default Product remove(String barcode) {
+        return remove(barcode, 0, NO_SNAPSHOT);
+    }
+
+    /** Stores a frozen copy of {@code product} as its version {@code stamp}. */
+    void put(Product product, long stamp, long horizon);
+
+    Product remove(String barcode, long stamp, long horizon);
+
+    /** The product as of snapshot {@code epoch}: its newest version stamped at or before it. */
+    Product get(String barcode, long epoch);
+
+    /** Visits every product as of snapshot {@code epoch}, each exactly once. */
+    void forEach(long epoch, Consumer<Product> action);
+
+    /**
+     * Products as of snapshot {@code epoch}, splittable so parallel scans can divide
+     * the store between threads. The default collects the scan into a list first.
+     */
+    default Spliterator<Product> spliterator(long epoch) {
+        List<Product> all = new ArrayList<>();
+        forEach(epoch, all::add);
+        return all.spliterator();
+    }
+
+    /** Drops versions and tombstones that no snapshot at or after {@code oldest} can read. */
+    void prune(long oldest);
+
+    int size();
+
+    /** Visits every product; weakly consistent with concurrent writes, like ConcurrentHashMap. */
+    void forEach(Consumer<Product> action);
+
+    List<Product> values();
+
+    /** Reads that had to be repeated because a concurrent write invalidated them. */
+    default long getReadRetries() {
+        return 0;
+    }
+}
\ No newline at end of file
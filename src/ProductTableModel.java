@@ -0,0 +1,171 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model that reads cells on demand from a barcode-sorted view of
+ * InventoryManager products. Cells hold the raw values; formatting is left to the
+ * renderer so only visible rows are ever turned into text.
+ */
+public class ProductTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int COL_BARCODE = 0;
+    static final int COL_NAME = 1;
+    static final int COL_QUANTITY = 2;
+    static final int COL_UNIT = 3;
+    static final int COL_PRICE = 4;
+    static final int COL_TOTAL = 5;
+
+    private static final String[] COLUMNS = {"Barcode", "Name", "Quantity", "Unit", "Price", "Total"};
+    private static final Class<?>[] TYPES = {String.class, String.class, Double.class, String.class, BigDecimal.class, BigDecimal.class};
+
+    static final Comparator<Product> BY_BARCODE = Comparator.comparing(Product::getBarcode);
+
+    private final InventoryManager manager;
+    private List<Product> rows = new ArrayList<>();
+    private String query = "";
+    private int version;
+
+    public ProductTableModel(InventoryManager manager) {
+        this.manager = manager;
+    }
+
+    /** Replaces the view with every product matching {@code query} (all when blank). */
+    public void load(String query) {
+        String q = query == null ? "" : query.trim();
+        setRows(q, find(manager, q));
+    }
+
+    public void reload() {
+        load(query);
+    }
+
+    /** Computes the rows {@link #load} would show, without touching the model; safe off the EDT. */
+    public static List<Product> find(InventoryManager manager, String query) {
+        String q = query == null ? "" : query.trim();
+        return sorted(q.isEmpty() ? manager.getAllProducts() : manager.search(q));
+    }
+
+    /** Publishes rows computed by {@link #find} for {@code query}. */
+    public void setRows(String query, List<Product> rows) {
+        this.query = query == null ? "" : query.trim();
+        this.rows = rows;
+        version++;
+        fireTableDataChanged();
+    }
+
+    /** Changes on every edit, so a search started earlier can tell that its result is stale. */
+    public int getVersion() {
+        return version;
+    }
+
+    public Product getProductAt(int row) {
+        return rows.get(row);
+    }
+
+    public void productAdded(Product p) {
+        version++;
+        if (!matchesQuery(p)) return;
+        int i = indexOf(p.getBarcode());
+        if (i >= 0) {
+            rows.set(i, p);
+            fireTableRowsUpdated(i, i);
+            return;
+        }
+        i = -i - 1;
+        rows.add(i, p);
+        fireTableRowsInserted(i, i);
+    }
+
+    public void productUpdated(String oldBarcode, Product p) {
+        version++;
+        int i = indexOf(oldBarcode);
+        if (i >= 0 && oldBarcode.equals(p.getBarcode()) && matchesQuery(p)) {
+            rows.set(i, p);
+            fireTableRowsUpdated(i, i);
+            return;
+        }
+        if (i >= 0) {
+            rows.remove(i);
+            fireTableRowsDeleted(i, i);
+        }
+        productAdded(p);
+    }
+
+    /** Applies a batch from InventoryManager.events(); each event is idempotent against the view. */
+    public void apply(List<InventoryEvent> batch) {
+        for (InventoryEvent e : batch) {
+            switch (e.getKind()) {
+                case ADDED: productAdded(e.getProduct()); break;
+                case UPDATED:
+                case RENAMED: productUpdated(e.getPreviousBarcode(), e.getProduct()); break;
+                case DELETED: productRemoved(e.getBarcode()); break;
+                // the owner reloads; a search already running sees the version change
+                case RESYNC: version++; break;
+            }
+        }
+    }
+
+    public void productRemoved(String barcode) {
+        version++;
+        int i = indexOf(barcode);
+        if (i < 0) return;
+        rows.remove(i);
+        fireTableRowsDeleted(i, i);
+    }
+
+    @Override public int getRowCount() { return rows.size(); }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+    @Override public Class<?> getColumnClass(int column) { return TYPES[column]; }
+    @Override public boolean isCellEditable(int row, int column) { return false; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Product p = rows.get(row);
+        switch (column) {
+            case COL_BARCODE: return p.getBarcode();
+            case COL_NAME: return p.getName();
+            case COL_QUANTITY: return p.getQuantity();
+            case COL_UNIT: return p.getUnit();
+            case COL_PRICE: return p.getPrice();
+            case COL_TOTAL: return p.getTotalValue();
+            default: throw new IndexOutOfBoundsException("column " + column);
+        }
+    }
+
+    // same rule as InventoryManager.search, applied to a single row
+    private boolean matchesQuery(Product p) {
+        if (query.isEmpty()) return true;
+        String q = query.toLowerCase(Locale.ROOT);
+        return p.getBarcode().toLowerCase(Locale.ROOT).contains(q)
+                || (p.getName() != null && p.getName().toLowerCase(Locale.ROOT).contains(q));
+    }
+
+    private int indexOf(String barcode) {
+        int lo = 0, hi = rows.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = rows.get(mid).getBarcode().compareTo(barcode);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private static List<Product> sorted(List<Product> products) {
+        Product[] arr = products.toArray(new Product[0]);
+        Arrays.parallelSort(arr, BY_BARCODE);
+        List<Product> out = new ArrayList<>(arr.length);
+        Collections.addAll(out, arr);
+        return out;
+    }
+}
\ No newline at end of file
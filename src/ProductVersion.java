@@ -0,0 +1,30 @@
+/**
+ * One committed version of a product, stamped with the epoch that wrote it and
+ * linked to the older versions open snapshots may still read. A null product is a
+ * tombstone: the barcode was removed as of {@code stamp}.
+ */
+public final class ProductVersion {
+
+    final Product product;
+    final long stamp;
+    volatile ProductVersion older;
+
+    ProductVersion(Product product, long stamp, ProductVersion older) {
+        this.product = product;
+        this.stamp = stamp;
+        this.older = older;
+    }
+
+    /** The newest version in this chain stamped at or before {@code epoch}, or null. */
+    ProductVersion asOf(long epoch) {
+        ProductVersion v = this;
+        while (v != null && v.stamp > epoch) v = v.older;
+        return v;
+    }
+
+    /** Cuts off versions that no snapshot at or after {@code oldest} can read. */
+    void prune(long oldest) {
+        ProductVersion keep = asOf(oldest);
+        if (keep != null) keep.older = null;
+    }
+}
\ No newline at end of file
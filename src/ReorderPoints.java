@@ -0,0 +1,161 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-product reorder points plus an index of every product ordered by quantity
+ * minus reorder point. Products below their reorder point form the head of the
+ * index, so listing them is O(k). Products without an explicit point use
+ * DEFAULT_REORDER_POINT. InventoryManager calls the update methods under the
+ * barcode's stripe lock, so changes for one barcode arrive in order.
+ */
+public class ReorderPoints {
+
+    public static final double DEFAULT_REORDER_POINT = 5.0;
+
+    /**
+     * Called on the mutating thread while the product's barcode is locked; hand
+     * anything slow off to another thread.
+     */
+    public interface Listener {
+        /** {@code product} fell below {@code reorderPoint}. */
+        void alertRaised(Product product, double reorderPoint);
+        /** The product left the alert state: restocked, point lowered, renamed or deleted. */
+        void alertCleared(String barcode);
+    }
+
+    private static final class Entry {
+        final String barcode;
+        final double margin;
+        final double point;
+
+        Entry(String barcode, double quantity, double point) {
+            this.barcode = barcode;
+            this.margin = quantity - point;
+            this.point = point;
+        }
+
+        boolean below() { return margin < 0; }
+    }
+
+    private static final Comparator<Entry> BY_MARGIN = Comparator.<Entry>comparingDouble(e -> e.margin).thenComparing(e -> e.barcode);
+
+    // explicit points only; also the journal's recovery target
+    private final Map<String, Double> points = new ConcurrentHashMap<>();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> byMargin = new ConcurrentSkipListSet<>(BY_MARGIN);
+    private final LongAdder belowCount = new LongAdder();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
+    public double getReorderPoint(String barcode) {
+        Double p = points.get(barcode);
+        return p == null ? DEFAULT_REORDER_POINT : p;
+    }
+
+    /** The precomputed flag of the product's index entry; false for unknown barcodes. */
+    public boolean isBelow(String barcode) {
+        Entry e = barcode == null ? null : entries.get(barcode);
+        return e != null && e.below();
+    }
+
+    public long belowCount() {
+        return belowCount.sum();
+    }
+
+    /** Barcodes below their reorder point, furthest below first. */
+    public List<String> belowBarcodes() {
+        List<String> out = new ArrayList<>();
+        for (Entry e : byMargin) {
+            if (!e.below()) break;
+            out.add(e.barcode);
+        }
+        return out;
+    }
+
+    Map<String, Double> points() {
+        return points;
+    }
+
+    /** Records the current state of {@code p}, added or changed in place. */
+    void update(Product p) {
+        Entry next = new Entry(p.getBarcode(), p.getQuantity(), getReorderPoint(p.getBarcode()));
+        Entry prev = entries.put(next.barcode, next);
+        // the set orders by margin and barcode only, so an unchanged margin keeps its node
+        if (prev == null || BY_MARGIN.compare(prev, next) != 0) {
+            if (prev != null) byMargin.remove(prev);
+            byMargin.add(next);
+        }
+        changed(prev, next, p);
+    }
+
+    void setPoint(Product p, double point) {
+        points.put(p.getBarcode(), point);
+        update(p);
+    }
+
+    void clearPoint(Product p) {
+        points.remove(p.getBarcode());
+        update(p);
+    }
+
+    /** The product keeps its reorder point under its new barcode. */
+    void rename(String oldBarcode, Product p) {
+        Double point = points.remove(oldBarcode);
+        if (point != null) points.put(p.getBarcode(), point);
+        remove(oldBarcode, false);
+        update(p);
+    }
+
+    void remove(String barcode) {
+        remove(barcode, true);
+    }
+
+    void rebuild(ProductStore products) {
+        entries.clear();
+        byMargin.clear();
+        belowCount.reset();
+        products.forEach(p -> {
+            Entry e = new Entry(p.getBarcode(), p.getQuantity(), getReorderPoint(p.getBarcode()));
+            entries.put(e.barcode, e);
+            byMargin.add(e);
+            if (e.below()) belowCount.increment();
+        });
+    }
+
+    private void remove(String barcode, boolean dropPoint) {
+        if (dropPoint) points.remove(barcode);
+        Entry prev = entries.remove(barcode);
+        if (prev == null) return;
+        byMargin.remove(prev);
+        changed(prev, null, null);
+    }
+
+    private void changed(Entry prev, Entry next, Product p) {
+        boolean was = prev != null && prev.below();
+        boolean is = next != null && next.below();
+        if (was == is) return;
+        belowCount.add(is ? 1 : -1);
+        for (Listener l : listeners) {
+            try {
+                if (is) l.alertRaised(p, next.point);
+                else l.alertCleared(prev.barcode);
+            } catch (RuntimeException e) {
+                System.err.println("Reorder listener failed: " + e);
+            }
+        }
+    }
+}
\ No newline at end of file
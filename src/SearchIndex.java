@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Incrementally maintained search index over barcode and name: a trigram posting
+ * index for substring queries and an ordered barcode set for prefix queries.
+ * Callers serialize add/remove per barcode; queries may run concurrently. The index
+ * keeps only keys; hits are resolved to current products through the store.
+ */
+public class SearchIndex {
+
+    // rank buckets, lower is better
+    private static final int EXACT_BARCODE = 0;
+    private static final int BARCODE_PREFIX = 1;
+    private static final int NAME_PREFIX = 2;
+    private static final int BARCODE_CONTAINS = 3;
+    private static final int NAME_CONTAINS = 4;
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final Map<Long, Set<String>> trigrams = new ConcurrentHashMap<>();
+    // entries are "lowercase barcode" + '\0' + barcode, so a prefix is a contiguous range
+    private final NavigableSet<String> barcodePrefixes = new ConcurrentSkipListSet<>();
+    // lowercased fields as indexed, so removal and verification never re-lowercase
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Function<String, Product> resolver;
+
+    private static final class Entry {
+        final String code;
+        final String barcode;
+        final String name;
+
+        Entry(Product product) {
+            this.code = product.getBarcode();
+            this.barcode = lower(product.getBarcode());
+            this.name = lower(product.getName());
+        }
+    }
+
+    /** {@code resolver} looks up the current product for an indexed barcode. */
+    public SearchIndex(Function<String, Product> resolver) {
+        this.resolver = resolver;
+    }
+
+    private static final class Hit {
+        final Entry entry;
+        final int rank;
+
+        Hit(Entry entry, int rank) {
+            this.entry = entry;
+            this.rank = rank;
+        }
+    }
+
+    private static final Comparator<Hit> HIT_ORDER = Comparator.<Hit>comparingInt(h -> h.rank)
+            .thenComparing(h -> h.entry.barcode)
+            .thenComparing(h -> h.entry.code);
+
+    public void add(Product p) {
+        Entry previous = entries.get(p.getBarcode());
+        // only quantity/price/unit changed: nothing indexed differs
+        if (previous != null && Objects.equals(previous.name, lower(p.getName()))) return;
+        if (previous != null) unindex(p.getBarcode(), previous);
+        Entry e = new Entry(p);
+        entries.put(p.getBarcode(), e);
+        barcodePrefixes.add(e.barcode + KEY_SEPARATOR + p.getBarcode());
+        forEachTrigram(e.barcode, t -> post(t, p.getBarcode()));
+        forEachTrigram(e.name, t -> post(t, p.getBarcode()));
+    }
+
+    public void remove(String barcode) {
+        Entry e = entries.remove(barcode);
+        if (e != null) unindex(barcode, e);
+    }
+
+    public void rebuild(ProductStore store) {
+        clear();
+        store.forEach(this::add);
+    }
+
+    public void clear() {
+        trigrams.clear();
+        barcodePrefixes.clear();
+        entries.clear();
+    }
+
+    /** Ranked matches for {@code query}; {@code limit <= 0} means unlimited. */
+    public List<Product> search(String query, int limit) {
+        String q = lower(query.trim());
+        if (limit > 0) {
+            // barcode prefix hits outrank everything but an exact match, which sorts
+            // first in the range, so a full page of them is already the answer
+            List<Product> page = prefixPage(q, limit);
+            if (page != null) return page;
+        }
+        List<Entry> candidates = q.length() >= 3 ? trigramCandidates(q) : shortQueryCandidates(q, limit);
+
+        List<Hit> hits;
+        if (limit > 0) {
+            // bounded max-heap keeps only the best `limit` hits
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, HIT_ORDER.reversed());
+            for (Entry e : candidates) {
+                int rank = rank(e, q);
+                if (rank < 0) continue;
+                Hit h = new Hit(e, rank);
+                if (top.size() < limit) {
+                    top.add(h);
+                } else if (HIT_ORDER.compare(h, top.peek()) < 0) {
+                    top.poll();
+                    top.add(h);
+                }
+            }
+            hits = new ArrayList<>(top);
+        } else {
+            hits = new ArrayList<>();
+            for (Entry e : candidates) {
+                int rank = rank(e, q);
+                if (rank >= 0) hits.add(new Hit(e, rank));
+            }
+        }
+        hits.sort(HIT_ORDER);
+
+        List<Product> results = new ArrayList<>(hits.size());
+        for (Hit h : hits) {
+            Product p = resolver.apply(h.entry.code);
+            if (p != null) results.add(p); // removed since it was matched
+        }
+        return results;
+    }
+
+    private List<Product> prefixPage(String q, int limit) {
+        List<Product> page = new ArrayList<>(limit);
+        for (String key : barcodePrefixes.subSet(q, true, q + Character.MAX_VALUE, false)) {
+            Product p = resolver.apply(key.substring(key.indexOf(KEY_SEPARATOR) + 1));
+            if (p == null) continue;
+            page.add(p);
+            if (page.size() == limit) return page;
+        }
+        return null;
+    }
+
+    private List<Entry> trigramCandidates(String q) {
+        List<Set<String>> lists = new ArrayList<>();
+        boolean[] missing = new boolean[1];
+        forEachTrigram(q, t -> {
+            Set<String> s = trigrams.get(t);
+            if (s == null || s.isEmpty()) missing[0] = true;
+            else lists.add(s);
+        });
+        List<Entry> out = new ArrayList<>();
+        if (missing[0] || lists.isEmpty()) return out;
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<String> smallest = lists.get(0);
+        outer:
+        for (String code : smallest) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(code)) continue outer;
+            }
+            Entry e = entries.get(code);
+            if (e != null) out.add(e);
+        }
+        return out;
+    }
+
+    // One or two characters carry no trigram; barcode prefixes come from the ordered
+    // set and the remaining substring matches from a scan that stops once filled.
+    private List<Entry> shortQueryCandidates(String q, int limit) {
+        List<Entry> out = new ArrayList<>();
+        for (String key : barcodePrefixes.subSet(q, true, q + Character.MAX_VALUE, false)) {
+            Entry e = entries.get(key.substring(key.indexOf(KEY_SEPARATOR) + 1));
+            if (e != null) out.add(e);
+            if (limit > 0 && out.size() >= limit) return out;
+        }
+        for (Entry e : entries.values()) {
+            if (e.barcode.startsWith(q)) continue; // already collected above
+            if (e.barcode.contains(q) || (e.name != null && e.name.contains(q))) {
+                out.add(e);
+                if (limit > 0 && out.size() >= limit) break;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The order search() returns matches for {@code query} in, for merging results
+     * from several indexes, e.g. one per shard.
+     */
+    public static Comparator<Product> resultOrder(String query) {
+        String q = lower(query.trim());
+        return Comparator.<Product>comparingInt(p -> rank(new Entry(p), q))
+                .thenComparing(p -> lower(p.getBarcode()))
+                .thenComparing(Product::getBarcode);
+    }
+
+    private static int rank(Entry e, String q) {
+        if (e.barcode.equals(q)) return EXACT_BARCODE;
+        if (e.barcode.startsWith(q)) return BARCODE_PREFIX;
+        if (e.name != null && e.name.startsWith(q)) return NAME_PREFIX;
+        if (e.barcode.contains(q)) return BARCODE_CONTAINS;
+        if (e.name != null && e.name.contains(q)) return NAME_CONTAINS;
+        return -1;
+    }
+
+    private void unindex(String barcode, Entry e) {
+        barcodePrefixes.remove(e.barcode + KEY_SEPARATOR + barcode);
+        forEachTrigram(e.barcode, t -> unpost(t, barcode));
+        forEachTrigram(e.name, t -> unpost(t, barcode));
+    }
+
+    // Postings are never dropped once created (the trigram space is small), so adds
+    // and removes touch only the posting set and never lock the trigram map.
+    private void unpost(long trigram, String barcode) {
+        Set<String> set = trigrams.get(trigram);
+        if (set != null) set.remove(barcode);
+    }
+
+    private void post(long trigram, String barcode) {
+        Set<String> set = trigrams.get(trigram);
+        if (set == null) set = trigrams.computeIfAbsent(trigram, k -> ConcurrentHashMap.newKeySet());
+        set.add(barcode);
+    }
+
+    private interface TrigramConsumer {
+        void accept(long trigram);
+    }
+
+    private static void forEachTrigram(String s, TrigramConsumer c) {
+        if (s == null) return;
+        for (int i = 0; i + 3 <= s.length(); i++) c.accept(pack(s, i));
+    }
+
+    private static long pack(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static String lower(String s) {
+        return s == null ? null : s.toLowerCase(Locale.ROOT);
+    }
+}
\ No newline at end of file
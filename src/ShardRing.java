@@ -0,0 +1,85 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Consistent-hash ring over named shards. Each shard owns {@code virtualNodes}
+ * points on a 64-bit ring and a barcode belongs to the first point at or after its
+ * hash, so adding or removing one of N shards moves about 1/N of the barcodes and
+ * leaves the rest where they were. Positions depend only on the shard names, not
+ * on their order, so every client given the same names routes the same way.
+ */
+public final class ShardRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final List<String> shards;
+    private final long[] points;
+    private final int[] owners;
+
+    public ShardRing(List<String> shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ShardRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("At least one shard required");
+        if (virtualNodes < 1) throw new IllegalArgumentException("At least one virtual node per shard required");
+        if (new HashSet<>(shards).size() != shards.size()) throw new IllegalArgumentException("Shard names must be unique");
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        int n = shards.size() * virtualNodes;
+        long[] pos = new long[n];
+        for (int s = 0; s < shards.size(); s++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                int i = s * virtualNodes + v;
+                pos[i] = hash(shards.get(s) + "#" + v);
+            }
+        }
+        // sort point indexes by position, ties (vanishingly rare) broken by shard name
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = Long.compare(pos[a], pos[b]);
+            return c != 0 ? c : shards.get(a / virtualNodes).compareTo(shards.get(b / virtualNodes));
+        });
+        points = new long[n];
+        owners = new int[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = pos[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /** Index into getShards() of the shard that owns {@code barcode}. */
+    public int shardOf(String barcode) {
+        long h = hash(barcode);
+        int i = Arrays.binarySearch(points, h);
+        if (i < 0) i = -i - 1;
+        return owners[i == points.length ? 0 : i];
+    }
+
+    // FNV-1a over the UTF-8 bytes, then a murmur3 finalizer to spread nearby keys
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Client for a catalog partitioned across InventoryServer nodes, one shard each.
+ * Barcodes are consistent-hashed to shards by ShardRing, so point reads and writes
+ * go to one shard only and writes to different shards never contend; search,
+ * totals and stats are sent to every shard in parallel and merged. A shard is an
+ * ordinary `--server` process with its own journal, or a LocalShardCluster node.
+ *
+ * Atomicity is per shard. A stock transaction whose lines hash to more than one
+ * shard is rejected. A rename that moves a product to another shard is a copy
+ * and then a delete, so a reader may briefly see it under both barcodes.
+ */
+public class ShardedInventory {
+
+    private final List<URI> nodes;
+    private final ShardRing ring;
+    private final HttpClient client;
+
+    /** Shards named by their URIs, so every client given the same URIs routes alike. */
+    public ShardedInventory(List<URI> nodes) {
+        this(null, nodes);
+    }
+
+    /**
+     * {@code names} identify shards on the ring independently of where they are
+     * served from, so a shard can move to another address without moving its keys.
+     */
+    public ShardedInventory(List<String> names, List<URI> nodes) {
+        if (names != null && names.size() != nodes.size()) throw new IllegalArgumentException("One name per shard required");
+        List<URI> normalized = new ArrayList<>();
+        for (URI u : nodes) {
+            String s = u.toString();
+            while (s.endsWith("/")) s = s.substring(0, s.length() - 1);
+            normalized.add(URI.create(s));
+        }
+        this.nodes = List.copyOf(normalized);
+        List<String> ids = new ArrayList<>();
+        for (URI u : this.nodes) ids.add(u.toString());
+        this.ring = new ShardRing(names != null ? names : ids);
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    public List<URI> getNodes() {
+        return nodes;
+    }
+
+    /** Index into getNodes() of the shard that owns {@code barcode}. */
+    public int shardOf(String barcode) {
+        return ring.shardOf(barcode);
+    }
+
+    public void addProduct(Product product) {
+        if (product == null) throw new IllegalArgumentException("Product cannot be null");
+        String code = requireBarcode(product.getBarcode());
+        check(call(shardOf(code), "POST", "/products", Json.product(new StringBuilder(), product).toString()), 201);
+    }
+
+    /**
+     * Adds every product whose barcode is not already present and returns how many
+     * were added. Each shard gets its share as one pipelined batch, all in parallel.
+     */
+    public int addAll(Collection<Product> batch) {
+        Map<Integer, StringBuilder> bodies = new TreeMap<>();
+        for (Product p : batch) {
+            if (p == null) throw new IllegalArgumentException("Product cannot be null");
+            StringBuilder b = bodies.computeIfAbsent(shardOf(requireBarcode(p.getBarcode())), k -> new StringBuilder());
+            Json.product(b.append("{\"op\":\"add\",\"product\":"), p).append("}\n");
+        }
+        List<CompletableFuture<HttpResponse<String>>> replies = new ArrayList<>();
+        for (Map.Entry<Integer, StringBuilder> e : bodies.entrySet()) {
+            replies.add(callAsync(e.getKey(), "POST", "/batch", e.getValue().toString()));
+        }
+        int added = 0;
+        for (CompletableFuture<HttpResponse<String>> f : replies) {
+            for (String line : check(join(f), 200).body().split("\n")) {
+                if (line.isEmpty()) continue;
+                Map<String, Object> r = Json.parseObject(line);
+                int status = Json.decimal(r, "status").intValue();
+                if (status == 201) added++;
+                else if (status != 409) throw new IllegalArgumentException(Json.string(r, "error"));
+            }
+        }
+        return added;
+    }
+
+    public Product getProductByBarcode(String barcode) {
+        if (barcode == null || barcode.isEmpty()) return null;
+        HttpResponse<String> r = call(shardOf(barcode), "GET", productPath(barcode), null);
+        if (r.statusCode() == 404) return null;
+        return Json.toProduct(Json.parseObject(check(r, 200).body()), null);
+    }
+
+    public boolean containsBarcode(String barcode) {
+        return getProductByBarcode(barcode) != null;
+    }
+
+    public void updateProduct(String oldBarcode, Product updated) {
+        if (oldBarcode == null || oldBarcode.isEmpty()) throw new IllegalArgumentException("Old barcode required");
+        if (updated == null) throw new IllegalArgumentException("Updated product required");
+        String newBarcode = requireBarcode(updated.getBarcode());
+        int from = shardOf(oldBarcode);
+        int to = shardOf(newBarcode);
+        if (from == to) {
+            check(call(from, "PUT", productPath(oldBarcode), Json.product(new StringBuilder(), updated).toString()), 200);
+            return;
+        }
+        // moving shards: copy the product and its reorder point, then drop the original
+        HttpResponse<String> point = call(from, "GET", productPath(oldBarcode) + "/reorder-point", null);
+        if (point.statusCode() == 404) throw new IllegalArgumentException("No product with barcode: " + oldBarcode);
+        BigDecimal reorderPoint = Json.decimal(Json.parseObject(check(point, 200).body()), "reorderPoint");
+        check(call(to, "POST", "/products", Json.product(new StringBuilder(), updated).toString()), 201);
+        if (reorderPoint.compareTo(BigDecimal.valueOf(ReorderPoints.DEFAULT_REORDER_POINT)) != 0) {
+            setReorderPoint(newBarcode, reorderPoint.doubleValue());
+        }
+        check(call(from, "DELETE", productPath(oldBarcode), null), 204);
+    }
+
+    public void deleteProduct(String barcode) {
+        if (barcode == null) return;
+        check(call(shardOf(barcode), "DELETE", productPath(barcode), null), 204);
+    }
+
+    /** Applies {@code tx} atomically on the one shard that owns all of its barcodes. */
+    public List<Product> applyTransaction(StockTransaction tx) {
+        if (tx == null) throw new IllegalArgumentException("Transaction required");
+        if (tx.isEmpty()) return new ArrayList<>();
+        int shard = -1;
+        StringBuilder b = new StringBuilder("{\"lines\":[");
+        for (StockTransaction.Line line : tx.getLines()) {
+            int s = shardOf(line.getBarcode());
+            if (shard >= 0 && s != shard) {
+                throw new IllegalArgumentException("Transaction spans shards; " + line.getBarcode() + " is not on the shard of " + tx.getLines().get(0).getBarcode());
+            }
+            shard = s;
+            if (b.charAt(b.length() - 1) != '[') b.append(',');
+            String kind = line.getKind().name().toLowerCase(Locale.ROOT);
+            double qty = line.getKind() == StockTransaction.Kind.PICK ? -line.getDelta() : line.getDelta();
+            b.append("{\"kind\":\"").append(kind).append("\",\"barcode\":");
+            Json.quote(b, line.getBarcode()).append(",\"quantity\":").append(qty).append('}');
+        }
+        return products(check(call(shard, "POST", "/stock", b.append("]}").toString()), 200).body());
+    }
+
+    public void setReorderPoint(String barcode, Double point) {
+        requireBarcode(barcode);
+        String body = "{\"reorderPoint\":" + (point == null ? "null" : point.toString()) + "}";
+        check(call(shardOf(barcode), "PUT", productPath(barcode) + "/reorder-point", body), 200);
+    }
+
+    public List<Product> search(String query) {
+        return search(query, 0);
+    }
+
+    /**
+     * Asks every shard for its best {@code limit} matches and merges them in the
+     * order InventoryManager.search ranks them. {@code limit <= 0} returns all.
+     */
+    public List<Product> search(String query, int limit) {
+        boolean all = query == null || query.trim().isEmpty();
+        String path = "/products?limit=" + Math.max(limit, 0) + (all ? "" : "&q=" + URLEncoder.encode(query, StandardCharsets.UTF_8));
+        List<Product> merged = new ArrayList<>();
+        for (HttpResponse<String> r : scatter(path)) merged.addAll(products(check(r, 200).body()));
+        if (!all) merged.sort(SearchIndex.resultOrder(query));
+        return limit > 0 && merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    public BigDecimal getTotalInventoryValue() {
+        return getStats().getTotalValue();
+    }
+
+    /** Sum of every shard's stats, each read without stopping that shard's writers; not a snapshot. */
+    public InventoryAggregates.Snapshot getStats() {
+        BigDecimal total = BigDecimal.ZERO.setScale(2);
+        long skus = 0;
+        long low = 0;
+        Map<String, BigDecimal> units = new HashMap<>();
+        for (HttpResponse<String> r : scatter("/stats")) {
+            Map<String, Object> s = Json.parseObject(check(r, 200).body());
+            total = total.add(Json.decimal(s, "totalValue"));
+            skus += Json.decimal(s, "skuCount").longValue();
+            low += Json.decimal(s, "lowStockCount").longValue();
+            Object byType = s.get("unitsByType");
+            if (byType instanceof Map) {
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) byType).entrySet()) {
+                    units.merge((String) e.getKey(), (BigDecimal) e.getValue(), BigDecimal::add);
+                }
+            }
+        }
+        return new InventoryAggregates.Snapshot(total, skus, low, units);
+    }
+
+    private List<HttpResponse<String>> scatter(String path) {
+        List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) pending.add(callAsync(i, "GET", path, null));
+        List<HttpResponse<String>> out = new ArrayList<>();
+        for (CompletableFuture<HttpResponse<String>> f : pending) out.add(join(f));
+        return out;
+    }
+
+    // point operations block in send(), which skips the async hand-offs sendAsync pays
+    private HttpResponse<String> call(int shard, String method, String path, String body) {
+        try {
+            return client.send(request(shard, method, path, body), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard unreachable: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for shard", e);
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> callAsync(int shard, String method, String path, String body) {
+        return client.sendAsync(request(shard, method, path, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(int shard, String method, String path, String body) {
+        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(nodes.get(shard) + path));
+        req.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (body != null) req.header("Content-Type", "application/json");
+        return req.build();
+    }
+
+    private HttpResponse<String> join(CompletableFuture<HttpResponse<String>> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw new UncheckedIOException("Shard unreachable: " + cause.getMessage(), (IOException) cause);
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw e;
+        }
+    }
+
+    // Shard rejections (400, 409) become IllegalArgumentException as they would locally
+    private HttpResponse<String> check(HttpResponse<String> r, int expected) {
+        int status = r.statusCode();
+        if (status == expected) return r;
+        String message = "Shard " + r.uri().getAuthority() + " returned " + status;
+        if (r.body() != null && r.body().startsWith("{")) {
+            try {
+                String error = Json.string(Json.parseObject(r.body()), "error");
+                if (error != null) message = error;
+            } catch (IllegalArgumentException e) {
+                // not an error document; keep the status
+            }
+        }
+        if (status == 400 || status == 404 || status == 409) throw new IllegalArgumentException(message);
+        throw new IllegalStateException(message);
+    }
+
+    private static List<Product> products(String json) {
+        Object v = Json.parse(json);
+        if (!(v instanceof List)) throw new IllegalStateException("Shard returned no product list");
+        List<Product> out = new ArrayList<>();
+        for (Object o : (List<?>) v) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> m = (Map<String, Object>) o;
+            out.add(Json.toProduct(m, null));
+        }
+        return out;
+    }
+
+    private static String productPath(String barcode) {
+        return "/products/" + URLEncoder.encode(barcode, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String requireBarcode(String barcode) {
+        if (barcode == null || barcode.isEmpty()) throw new IllegalArgumentException("Product barcode required");
+        return barcode;
+    }
+}
\ No newline at end of file
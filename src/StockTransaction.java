@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A batch of quantity movements applied atomically by
+ * InventoryManager.applyTransaction. Lines are applied in the order added, so a
+ * receive may cover a later pick of the same barcode within one transaction.
+ */
+public class StockTransaction {
+
+    public enum Kind { RECEIVE, PICK, ADJUST }
+
+    public static final class Line {
+        private final Kind kind;
+        private final String barcode;
+        private final double delta;
+
+        Line(Kind kind, String barcode, double delta) {
+            this.kind = kind;
+            this.barcode = barcode;
+            this.delta = delta;
+        }
+
+        public Kind getKind() { return kind; }
+        public String getBarcode() { return barcode; }
+        /** Signed change in quantity: positive for receive, negative for pick. */
+        public double getDelta() { return delta; }
+    }
+
+    private final List<Line> lines = new ArrayList<>();
+
+    public StockTransaction receive(String barcode, double quantity) {
+        return add(Kind.RECEIVE, barcode, checkAmount(quantity));
+    }
+
+    public StockTransaction pick(String barcode, double quantity) {
+        return add(Kind.PICK, barcode, -checkAmount(quantity));
+    }
+
+    /** Signed correction, e.g. after a stock count. */
+    public StockTransaction adjust(String barcode, double delta) {
+        if (Double.isNaN(delta) || Double.isInfinite(delta)) throw new IllegalArgumentException("Adjustment must be a valid number");
+        return add(Kind.ADJUST, barcode, delta);
+    }
+
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public Set<String> getBarcodes() {
+        Set<String> codes = new LinkedHashSet<>();
+        for (Line l : lines) codes.add(l.barcode);
+        return codes;
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    private StockTransaction add(Kind kind, String barcode, double delta) {
+        if (barcode == null || barcode.trim().isEmpty()) throw new IllegalArgumentException("Product barcode required");
+        lines.add(new Line(kind, barcode.trim(), delta));
+        return this;
+    }
+
+    private static double checkAmount(double quantity) {
+        if (Double.isNaN(quantity) || Double.isInfinite(quantity)) throw new IllegalArgumentException("Quantity must be a valid number");
+        if (quantity < 0) throw new IllegalArgumentException("Quantity cannot be negative!");
+        return quantity;
+    }
+}
\ No newline at end of file